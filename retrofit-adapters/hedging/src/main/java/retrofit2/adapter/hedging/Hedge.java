@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.hedging;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Send another attempt of a call which has not answered within the method's observed latency at
+ * {@link #percentile()}. The first response wins and the other attempts are canceled.
+ * <p>
+ * Attempts are made with {@link retrofit2.Call#clone()}, so only use this on idempotent methods.
+ * No attempt is hedged until the method has {@linkplain #minSamples() enough} recorded latencies,
+ * and each hedge is paid for by the factory's {@link RetryBudget}.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Hedge {
+  /** The fraction of calls which should answer before another attempt is sent. */
+  double percentile() default 0.95;
+
+  /** The shortest delay before another attempt is sent, in milliseconds. */
+  long minDelayMillis() default 0;
+
+  /** The most attempts, including the first, a call may send. */
+  int maxAttempts() default 2;
+
+  /** The number of latencies to record before the first hedge. */
+  int minSamples() default 20;
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.hedging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * A call which sends clones of {@code delegate} as hedges and retries. The first response which is
+ * not retried wins; the other attempts are canceled. Attempts are always enqueued, also when this
+ * call is executed synchronously.
+ */
+final class HedgingCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final HedgingCallAdapterFactory.Policy policy;
+
+  // All guarded by this.
+  private final List<Attempt> running = new ArrayList<>();
+  private Callback<T> callback;
+  private boolean executed;
+  private boolean canceled;
+  /** True once the callback has been, or is being, notified. */
+  private boolean done;
+  private int attempts;
+  private int retries;
+  /** The pending hedge or retry. */
+  private ScheduledFuture<?> timer;
+
+  HedgingCall(Call<T> delegate, HedgingCallAdapterFactory.Policy policy) {
+    this.delegate = delegate;
+    this.policy = policy;
+  }
+
+  @Override public Response<T> execute() throws IOException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final Object[] result = new Object[1];
+    enqueue(new Callback<T>() {
+      @Override public void onResponse(Call<T> call, Response<T> response) {
+        result[0] = response;
+        latch.countDown();
+      }
+
+      @Override public void onFailure(Call<T> call, Throwable t) {
+        result[0] = t;
+        latch.countDown();
+      }
+    });
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      cancel();
+      throw new InterruptedIOException();
+    }
+
+    Object outcome = result[0];
+    if (outcome instanceof Response) {
+      @SuppressWarnings("unchecked") // Only a Response<T> is stored.
+      Response<T> response = (Response<T>) outcome;
+      return response;
+    } else if (outcome instanceof IOException) {
+      throw (IOException) outcome;
+    } else if (outcome instanceof RuntimeException) {
+      throw (RuntimeException) outcome;
+    } else if (outcome instanceof Error) {
+      throw (Error) outcome;
+    }
+    throw new RuntimeException((Throwable) outcome);
+  }
+
+  @Override public void enqueue(Callback<T> callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+      this.callback = callback;
+    }
+    policy.budget.deposit();
+    start(delegate);
+  }
+
+  /** Send {@code call} as the next attempt, and plan a hedge for it. */
+  private void start(Call<T> call) {
+    Attempt attempt = new Attempt(call);
+    boolean cancelCall;
+    synchronized (this) {
+      if (done) return;
+      attempts++;
+      running.add(attempt);
+      cancelCall = canceled;
+      scheduleHedge();
+    }
+    if (cancelCall) {
+      // Report the cancelation through the attempt, like any other failure.
+      call.cancel();
+    }
+    try {
+      call.enqueue(attempt);
+    } catch (Throwable t) {
+      attempt.onFailure(call, t);
+    }
+  }
+
+  /** Plan a hedge if the method allows another one. Must hold the lock. */
+  private void scheduleHedge() {
+    if (timer != null || canceled || policy.hedge == null) return;
+    if (attempts >= policy.hedge.maxAttempts()) return;
+    long delayNanos = policy.hedgeDelayNanos();
+    if (delayNanos < 0) return;
+    schedule(new Timer(false), delayNanos);
+  }
+
+  /** Plan a retry after a backoff with full jitter. Must hold the lock. */
+  private void scheduleRetry() {
+    retries++;
+    long cap = policy.retry.backoffMillis() << Math.min(retries - 1, 30);
+    if (cap < 0 || cap > policy.retry.maxBackoffMillis()) {
+      cap = policy.retry.maxBackoffMillis();
+    }
+    long delayMillis = cap > 0 ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+    schedule(new Timer(true), TimeUnit.MILLISECONDS.toNanos(delayMillis));
+  }
+
+  private void schedule(Timer task, long delayNanos) {
+    task.future = policy.scheduler.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    timer = task.future;
+  }
+
+  /** Stop planning attempts. Returns the timer to cancel, if any. Must hold the lock. */
+  private ScheduledFuture<?> finish() {
+    done = true;
+    ScheduledFuture<?> result = timer;
+    timer = null;
+    return result;
+  }
+
+  private void succeeded(Attempt attempt, Response<T> response) {
+    List<Attempt> losers;
+    ScheduledFuture<?> timer;
+    Callback<T> callback;
+    synchronized (this) {
+      running.remove(attempt);
+      if (done) {
+        closeQuietly(response.body());
+        return;
+      }
+      timer = finish();
+      losers = new ArrayList<>(running);
+      running.clear();
+      callback = this.callback;
+    }
+    if (timer != null) timer.cancel(false);
+    // Notify first: canceling a transport call can block until its pending read returns.
+    callback.onResponse(this, response);
+    for (Attempt loser : losers) {
+      loser.call.cancel();
+    }
+  }
+
+  /** {@code attempt} failed with either a server error {@code response} or {@code t}. */
+  private void failed(Attempt attempt, Response<T> response, Throwable t) {
+    ScheduledFuture<?> timer;
+    Callback<T> callback;
+    synchronized (this) {
+      running.remove(attempt);
+      // Another attempt may still answer.
+      if (done || !running.isEmpty()) return;
+
+      if (policy.retry != null
+          && !canceled
+          && (t == null || t instanceof IOException)
+          && attempts < policy.retry.maxAttempts()
+          && policy.budget.tryWithdraw()) {
+        if (this.timer != null) this.timer.cancel(false);
+        scheduleRetry();
+        return;
+      }
+      timer = finish();
+      callback = this.callback;
+    }
+    if (timer != null) timer.cancel(false);
+    if (t == null) {
+      callback.onResponse(this, response);
+    } else {
+      callback.onFailure(this, t);
+    }
+  }
+
+  @Override public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  @Override public void cancel() {
+    List<Attempt> toCancel;
+    ScheduledFuture<?> timer = null;
+    Callback<T> callback = null;
+    synchronized (this) {
+      if (canceled) return;
+      canceled = true;
+      toCancel = new ArrayList<>(running);
+      if (executed && running.isEmpty() && !done) {
+        // Waiting for a retry.
+        timer = finish();
+        callback = this.callback;
+      }
+    }
+    delegate.cancel();
+    for (Attempt attempt : toCancel) {
+      attempt.call.cancel();
+    }
+    if (timer != null) timer.cancel(false);
+    if (callback != null) {
+      callback.onFailure(this, new IOException("Canceled"));
+    }
+  }
+
+  @Override public synchronized boolean isCanceled() {
+    return canceled;
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
+  @Override public Call<T> clone() {
+    return new HedgingCall<>(delegate.clone(), policy);
+  }
+
+  @Override public Request request() {
+    return delegate.request();
+  }
+
+  private static void closeQuietly(Object body) {
+    if (body instanceof Closeable) {
+      try {
+        ((Closeable) body).close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+  /** Sends a hedge or a retry, unless it was replaced or the call is done. */
+  private final class Timer implements Runnable {
+    final boolean retry;
+    // Guarded by HedgingCall.this, which is held while it is scheduled.
+    ScheduledFuture<?> future;
+
+    Timer(boolean retry) {
+      this.retry = retry;
+    }
+
+    @Override public void run() {
+      synchronized (HedgingCall.this) {
+        if (timer != future) return;
+        timer = null;
+        if (done || (canceled && !retry)) return;
+      }
+      // Retries were paid for when they were planned.
+      if (retry || policy.budget.tryWithdraw()) {
+        start(delegate.clone());
+      }
+    }
+  }
+
+  private final class Attempt implements Callback<T> {
+    final Call<T> call;
+    final long startNanos = System.nanoTime();
+
+    Attempt(Call<T> call) {
+      this.call = call;
+    }
+
+    @Override public void onResponse(Call<T> ignored, Response<T> response) {
+      policy.latencies.record(System.nanoTime() - startNanos);
+      if (policy.retry != null && response.code() >= 500) {
+        failed(this, response, null);
+      } else {
+        succeeded(this, response);
+      }
+    }
+
+    @Override public void onFailure(Call<T> ignored, Throwable t) {
+      failed(this, null, t);
+    }
+  }
+}
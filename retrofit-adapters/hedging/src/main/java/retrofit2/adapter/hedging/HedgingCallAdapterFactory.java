@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.hedging;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter factory} which hedges methods annotated
+ * {@link Hedge @Hedge} and retries methods annotated {@link Retry @Retry}. Other methods are left
+ * to the factories installed after this one.
+ * <p>
+ * Install it before any factory for the return types you use, such as RxJava's, so that it sees
+ * the {@link Call} first:
+ * <pre>{@code
+ * Retrofit retrofit = new Retrofit.Builder()
+ *     .baseUrl("https://api.example.com/")
+ *     .addCallAdapterFactory(HedgingCallAdapterFactory.create())
+ *     .addCallAdapterFactory(RxJavaCallAdapterFactory.create())
+ *     .build();
+ * }</pre>
+ * Each method keeps its own latency histogram. Every method of one factory shares its {@link
+ * RetryBudget}.
+ */
+public final class HedgingCallAdapterFactory extends CallAdapter.Factory {
+  /**
+   * Returns an instance which schedules hedges and retries on a shared daemon thread and has the
+   * {@linkplain RetryBudget#create() default budget}.
+   */
+  public static HedgingCallAdapterFactory create() {
+    return create(DefaultScheduler.INSTANCE, RetryBudget.create());
+  }
+
+  /**
+   * Returns an instance which schedules hedges and retries on {@code scheduler}. Attempts are
+   * enqueued from its threads, so its tasks are short.
+   */
+  public static HedgingCallAdapterFactory create(ScheduledExecutorService scheduler,
+      RetryBudget budget) {
+    if (scheduler == null) throw new NullPointerException("scheduler == null");
+    if (budget == null) throw new NullPointerException("budget == null");
+    return new HedgingCallAdapterFactory(scheduler, budget);
+  }
+
+  private final ScheduledExecutorService scheduler;
+  private final RetryBudget budget;
+
+  private HedgingCallAdapterFactory(ScheduledExecutorService scheduler, RetryBudget budget) {
+    this.scheduler = scheduler;
+    this.budget = budget;
+  }
+
+  @Override
+  public CallAdapter<?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    Hedge hedge = null;
+    Retry retry = null;
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Hedge) {
+        hedge = (Hedge) annotation;
+      } else if (annotation instanceof Retry) {
+        retry = (Retry) annotation;
+      }
+    }
+    if (hedge == null && retry == null) {
+      return null;
+    }
+    if (hedge != null) {
+      if (hedge.percentile() <= 0 || hedge.percentile() > 1) {
+        throw new IllegalArgumentException(
+            "@Hedge percentile must be in (0, 1]: " + hedge.percentile());
+      }
+      if (hedge.maxAttempts() < 2) {
+        throw new IllegalArgumentException("@Hedge maxAttempts < 2: " + hedge.maxAttempts());
+      }
+    }
+    if (retry != null && retry.maxAttempts() < 2) {
+      throw new IllegalArgumentException("@Retry maxAttempts < 2: " + retry.maxAttempts());
+    }
+
+    CallAdapter<?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+    return new HedgingCallAdapter<>(delegate, new Policy(hedge, retry, scheduler, budget));
+  }
+
+  /** What one method may do, and the latencies it has seen. */
+  static final class Policy {
+    final Hedge hedge;
+    final Retry retry;
+    final ScheduledExecutorService scheduler;
+    final RetryBudget budget;
+    final LatencyHistogram latencies = new LatencyHistogram();
+
+    Policy(Hedge hedge, Retry retry, ScheduledExecutorService scheduler, RetryBudget budget) {
+      this.hedge = hedge;
+      this.retry = retry;
+      this.scheduler = scheduler;
+      this.budget = budget;
+    }
+
+    /** The delay before hedging, in nanoseconds, or -1 to not hedge yet. */
+    long hedgeDelayNanos() {
+      if (hedge == null || latencies.samples() < hedge.minSamples()) return -1;
+      long delay = latencies.percentile(hedge.percentile());
+      return Math.max(delay, hedge.minDelayMillis() * 1000000L);
+    }
+  }
+
+  private static final class HedgingCallAdapter<T> implements CallAdapter<T> {
+    private final CallAdapter<T> delegate;
+    private final Policy policy;
+
+    HedgingCallAdapter(CallAdapter<T> delegate, Policy policy) {
+      this.delegate = delegate;
+      this.policy = policy;
+    }
+
+    @Override public Type responseType() {
+      return delegate.responseType();
+    }
+
+    @Override public <R> T adapt(Call<R> call) {
+      return delegate.adapt(new HedgingCall<>(call, policy));
+    }
+  }
+
+  private static final class DefaultScheduler {
+    static final ScheduledExecutorService INSTANCE;
+
+    static {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "Retrofit-Hedging");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      executor.setRemoveOnCancelPolicy(true);
+      INSTANCE = executor;
+    }
+  }
+}
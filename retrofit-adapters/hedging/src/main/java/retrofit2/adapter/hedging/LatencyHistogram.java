@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.hedging;
+
+/**
+ * Recent latencies of one service method. Buckets are a quarter of a power of two wide, so a
+ * percentile overestimates the true value by at most 25%. Once {@link #DECAY_SAMPLES} latencies
+ * are recorded every count is halved, so the histogram follows changes in latency.
+ */
+final class LatencyHistogram {
+  static final int DECAY_SAMPLES = 1024;
+
+  // All guarded by this.
+  private final int[] counts = new int[256];
+  private int count;
+  /** Samples recorded in total, never decayed. */
+  private long samples;
+
+  synchronized void record(long nanos) {
+    counts[bucket(Math.max(0, nanos / 1000))]++;
+    samples++;
+    if (++count == DECAY_SAMPLES) {
+      count = 0;
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] >>= 1;
+        count += counts[i];
+      }
+    }
+  }
+
+  synchronized long samples() {
+    return samples;
+  }
+
+  /**
+   * Returns the latency in nanoseconds which {@code percentile} of the recorded calls were faster
+   * than, or -1 if nothing was recorded.
+   */
+  synchronized long percentile(double percentile) {
+    if (count == 0) return -1;
+    long target = (long) Math.ceil(percentile * count);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= target && seen > 0) return upperBoundMicros(i) * 1000;
+    }
+    return upperBoundMicros(counts.length - 1) * 1000;
+  }
+
+  /** Values below 4 get their own bucket, then each power of two is split in four. */
+  static int bucket(long micros) {
+    if (micros < 4) return (int) micros;
+    int bits = 63 - Long.numberOfLeadingZeros(micros);
+    int quarter = (int) (micros >>> (bits - 2)) & 3;
+    return 4 * (bits - 1) + quarter;
+  }
+
+  /** The smallest value which is greater than everything in {@code bucket}. */
+  static long upperBoundMicros(int bucket) {
+    if (bucket < 4) return bucket + 1;
+    int bits = bucket / 4 + 1;
+    int quarter = bucket & 3;
+    return (4L + quarter + 1) << (bits - 2);
+  }
+}
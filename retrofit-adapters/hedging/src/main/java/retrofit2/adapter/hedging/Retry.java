@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.hedging;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Retry a call whose attempts all failed with an {@link java.io.IOException} or a server error
+ * (5xx) response. Retries wait for an exponential backoff with full jitter: a random delay between
+ * zero and {@code backoffMillis * 2^retry}, capped at {@link #maxBackoffMillis()}.
+ * <p>
+ * Attempts are made with {@link retrofit2.Call#clone()}, so only use this on idempotent methods.
+ * Each retry is paid for by the factory's {@link RetryBudget}.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Retry {
+  /** The most attempts, including the first, a call may send. */
+  int maxAttempts() default 3;
+
+  /** The upper bound of the first backoff, in milliseconds. */
+  long backoffMillis() default 50;
+
+  /** The upper bound of any backoff, in milliseconds. */
+  long maxBackoffMillis() default 2000;
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.hedging;
+
+/**
+ * Limits extra attempts, hedges and retries alike, to a fraction of the calls made. Every call
+ * deposits {@code ratio} tokens, up to {@code capacity}, and every extra attempt withdraws one. When
+ * a server is failing, this keeps retries from multiplying its load.
+ */
+public final class RetryBudget {
+  /** Extra attempts for up to 10% of calls, with a reserve of 10 for quiet periods. */
+  public static RetryBudget create() {
+    return create(0.1, 10);
+  }
+
+  /**
+   * Allow extra attempts for {@code ratio} of the calls made, with at most {@code capacity} saved
+   * up. The budget starts full.
+   */
+  public static RetryBudget create(double ratio, int capacity) {
+    if (ratio < 0) throw new IllegalArgumentException("ratio < 0: " + ratio);
+    if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+    return new RetryBudget(ratio, capacity);
+  }
+
+  private final double ratio;
+  private final int capacity;
+
+  // Guarded by this.
+  private double tokens;
+
+  private RetryBudget(double ratio, int capacity) {
+    this.ratio = ratio;
+    this.capacity = capacity;
+    this.tokens = capacity;
+  }
+
+  /** Record a call. */
+  synchronized void deposit() {
+    tokens = Math.min(capacity, tokens + ratio);
+  }
+
+  /** Returns true if an extra attempt may be sent, paying for it. */
+  synchronized boolean tryWithdraw() {
+    if (tokens < 1) return false;
+    tokens -= 1;
+    return true;
+  }
+
+  /** The number of extra attempts which may be sent now. */
+  public synchronized int available() {
+    return (int) tokens;
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.hedging;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+import static okhttp3.mockwebserver.SocketPolicy.DISCONNECT_AFTER_REQUEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class HedgingCallAdapterFactoryTest {
+  private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @GET("/") Call<String> plain();
+    @Retry(maxAttempts = 3, backoffMillis = 1) @GET("/") Call<String> retried();
+    @Hedge(percentile = 1.0, minSamples = 1) @GET("/") Call<String> hedged();
+  }
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private Retrofit retrofit;
+  private Service service;
+
+  @Before public void setUp() {
+    setUp(RetryBudget.create());
+  }
+
+  private void setUp(RetryBudget budget) {
+    retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(HedgingCallAdapterFactory.create(scheduler, budget))
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @After public void tearDown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test public void unannotatedMethodsAreLeftToOtherFactories() throws Exception {
+    CallAdapter.Factory factory = HedgingCallAdapterFactory.create();
+    assertThat(factory.get(Call.class, NO_ANNOTATIONS, retrofit)).isNull();
+
+    server.enqueue(new MockResponse().setBody("Hi"));
+    Call<String> call = service.plain();
+    assertThat(call).isNotInstanceOf(HedgingCall.class);
+    assertThat(call.execute().body()).isEqualTo("Hi");
+  }
+
+  @Test public void retriesServerErrorsAndIoExceptions() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setSocketPolicy(DISCONNECT_AFTER_REQUEST));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    Response<String> response = service.retried().execute();
+    assertThat(response.body()).isEqualTo("Hi");
+    assertThat(server.getRequestCount()).isEqualTo(3);
+  }
+
+  @Test public void lastResponseWhenAttemptsRunOut() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    Response<String> response = service.retried().execute();
+    assertThat(response.code()).isEqualTo(500);
+    assertThat(server.getRequestCount()).isEqualTo(3);
+  }
+
+  @Test public void clientErrorsAreNotRetried() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(404));
+
+    Response<String> response = service.retried().execute();
+    assertThat(response.code()).isEqualTo(404);
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void emptyBudgetStopsRetries() throws Exception {
+    setUp(RetryBudget.create(0, 1));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(503));
+
+    // The only token in the budget pays for the first retry.
+    assertThat(service.retried().execute().code()).isEqualTo(503);
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test public void slowCallIsHedged() throws Exception {
+    // Record one fast call, so that the hedge is sent after about as long.
+    server.enqueue(new MockResponse().setBody("Warm"));
+    assertThat(service.hedged().execute().body()).isEqualTo("Warm");
+
+    server.enqueue(new MockResponse().setBody("Slow").setBodyDelay(5, TimeUnit.SECONDS));
+    server.enqueue(new MockResponse().setBody("Fast"));
+    long start = System.nanoTime();
+    Response<String> response = service.hedged().execute();
+    long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertThat(response.body()).isEqualTo("Fast");
+    assertThat(server.getRequestCount()).isEqualTo(3);
+    assertThat(tookMillis).isLessThan(5000);
+  }
+
+  @Test public void canceledBeforeExecute() throws Exception {
+    Call<String> call = service.retried();
+    call.cancel();
+    try {
+      call.execute();
+      fail();
+    } catch (IOException e) {
+      assertThat(e).hasMessage("Canceled");
+    }
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+
+  interface SlowRetryService {
+    @Retry(backoffMillis = 60000) @GET("/") Call<String> retried();
+  }
+
+  @Test public void cancelDuringBackoff() throws Exception {
+    RetryBudget budget = RetryBudget.create();
+    setUp(budget);
+    server.enqueue(new MockResponse().setResponseCode(503));
+
+    Call<String> call = retrofit.create(SlowRetryService.class).retried();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final CountDownLatch latch = new CountDownLatch(1);
+    call.enqueue(new Callback<String>() {
+      @Override public void onResponse(Call<String> call, Response<String> response) {
+        latch.countDown();
+      }
+
+      @Override public void onFailure(Call<String> call, Throwable t) {
+        failure.set(t);
+        latch.countDown();
+      }
+    });
+    // Paying for the retry means it is waiting for its backoff.
+    while (budget.available() == 10) {
+      Thread.sleep(10);
+    }
+
+    call.cancel();
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(failure.get()).isInstanceOf(IOException.class).hasMessage("Canceled");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void cloneSendsAgain() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Again"));
+
+    Call<String> call = service.retried();
+    assertThat(call.execute().body()).isEqualTo("Hi");
+    assertThat(call.clone().execute().body()).isEqualTo("Again");
+    try {
+      call.execute();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Already executed.");
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.hedging;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class LatencyHistogramTest {
+  @Test public void emptyHasNoPercentile() {
+    assertThat(new LatencyHistogram().percentile(0.95)).isEqualTo(-1);
+  }
+
+  @Test public void bucketBoundsContainTheirValues() {
+    for (long micros = 0; micros < 100000; micros++) {
+      int bucket = LatencyHistogram.bucket(micros);
+      assertThat(LatencyHistogram.upperBoundMicros(bucket)).isGreaterThan(micros);
+      if (bucket > 0) {
+        assertThat(LatencyHistogram.upperBoundMicros(bucket - 1)).isLessThanOrEqualTo(micros);
+      }
+    }
+  }
+
+  @Test public void percentileIsWithinAQuarter() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int millis = 1; millis <= 100; millis++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    long p95 = TimeUnit.NANOSECONDS.toMillis(histogram.percentile(0.95));
+    assertThat(p95).isBetween(95L, 119L);
+    long p50 = TimeUnit.NANOSECONDS.toMillis(histogram.percentile(0.5));
+    assertThat(p50).isBetween(50L, 63L);
+  }
+
+  @Test public void decayFollowsRecentLatency() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < LatencyHistogram.DECAY_SAMPLES; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    for (int i = 0; i < 4 * LatencyHistogram.DECAY_SAMPLES; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+    assertThat(TimeUnit.NANOSECONDS.toMillis(histogram.percentile(0.5)))
+        .isGreaterThanOrEqualTo(100L);
+    assertThat(histogram.samples()).isEqualTo(5L * LatencyHistogram.DECAY_SAMPLES);
+  }
+}
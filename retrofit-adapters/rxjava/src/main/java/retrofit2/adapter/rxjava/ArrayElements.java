@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.rxjava;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Emit each element of the response's array, rather than the whole response as one item. The
+ * response body is converted to an {@code Iterator<T>}, so a converter must support that type for
+ * the elements to be read as they are requested:
+ * <pre><code>
+ * &#64;ArrayElements
+ * &#64;GET("/exports/repos")
+ * Observable&lt;Repo&gt; repos();
+ * </code></pre>
+ * Elements are read on the thread which requests them, and only as fast as the subscriber requests
+ * them. Unsubscribing closes the response.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface ArrayElements {
+}
@@ -15,9 +15,13 @@
  */
 package retrofit2.adapter.rxjava;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Iterator;
 import retrofit2.Call;
 import retrofit2.CallAdapter;
 import retrofit2.Response;
@@ -56,6 +60,13 @@ public final class RxJavaCallAdapterFactory extends CallAdapter.Factory {
           + " as " + name + "<Foo> or " + name + "<? extends Foo>");
     }
 
+    if (isAnnotationPresent(annotations, ArrayElements.class)) {
+      if (isSingle) {
+        throw new IllegalStateException("@ArrayElements requires an Observable return type.");
+      }
+      return getElementsCallAdapter(returnType);
+    }
+
     CallAdapter<Observable<?>> callAdapter = getCallAdapter(returnType);
     if (isSingle) {
       // Add Single-converter wrapper from a separate class. This defers classloading such that
@@ -89,6 +100,26 @@ public final class RxJavaCallAdapterFactory extends CallAdapter.Factory {
     return new SimpleCallAdapter(observableType);
   }
 
+  private CallAdapter<Observable<?>> getElementsCallAdapter(Type returnType) {
+    Type elementType = getParameterUpperBound(0, (ParameterizedType) returnType);
+    Class<?> rawElementType = getRawType(elementType);
+    if (rawElementType == Response.class || rawElementType == Result.class) {
+      throw new IllegalStateException("@ArrayElements emits elements and cannot be used with "
+          + rawElementType.getSimpleName() + ".");
+    }
+    return new ElementsCallAdapter(new IteratorType(elementType));
+  }
+
+  private static boolean isAnnotationPresent(Annotation[] annotations,
+      Class<? extends Annotation> cls) {
+    for (Annotation annotation : annotations) {
+      if (cls.isInstance(annotation)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   static final class CallOnSubscribe<T> implements Observable.OnSubscribe<Response<T>> {
     private final Call<T> originalCall;
 
@@ -191,4 +222,87 @@ public final class RxJavaCallAdapterFactory extends CallAdapter.Factory {
           });
     }
   }
+
+  static final class ElementsCallAdapter implements CallAdapter<Observable<?>> {
+    private final Type responseType;
+
+    ElementsCallAdapter(Type responseType) {
+      this.responseType = responseType;
+    }
+
+    @Override public Type responseType() {
+      return responseType;
+    }
+
+    @Override public <R> Observable<?> adapt(Call<R> call) {
+      return Observable.create(new CallOnSubscribe<>(call)) //
+          .flatMap(new Func1<Response<R>, Observable<?>>() {
+            @Override public Observable<?> call(Response<R> response) {
+              if (!response.isSuccessful()) {
+                return Observable.error(new HttpException(response));
+              }
+              final Iterator<?> iterator = (Iterator<?>) response.body();
+              if (iterator == null) {
+                return Observable.empty();
+              }
+              // from() only pulls as many elements as the subscriber requests.
+              return Observable.from(new Iterable<Object>() {
+                @SuppressWarnings("unchecked") // Elements are only read, never added.
+                @Override public Iterator<Object> iterator() {
+                  return (Iterator<Object>) iterator;
+                }
+              }).doOnUnsubscribe(new Action0() {
+                @Override public void call() {
+                  if (iterator instanceof Closeable) {
+                    try {
+                      ((Closeable) iterator).close();
+                    } catch (IOException ignored) {
+                    }
+                  }
+                }
+              });
+            }
+          });
+    }
+  }
+
+  /** {@code Iterator<T>}, the body type of a call whose elements are emitted. */
+  static final class IteratorType implements ParameterizedType {
+    private final Type elementType;
+
+    IteratorType(Type elementType) {
+      this.elementType = elementType;
+    }
+
+    @Override public Type[] getActualTypeArguments() {
+      return new Type[] { elementType };
+    }
+
+    @Override public Type getRawType() {
+      return Iterator.class;
+    }
+
+    @Override public Type getOwnerType() {
+      return null;
+    }
+
+    @Override public boolean equals(Object other) {
+      return other instanceof ParameterizedType
+          && ((ParameterizedType) other).getRawType() == Iterator.class
+          && ((ParameterizedType) other).getOwnerType() == null
+          && Arrays.equals(getActualTypeArguments(),
+              ((ParameterizedType) other).getActualTypeArguments());
+    }
+
+    @Override public int hashCode() {
+      return Arrays.hashCode(getActualTypeArguments()) ^ Iterator.class.hashCode();
+    }
+
+    @Override public String toString() {
+      String element = elementType instanceof Class
+          ? ((Class<?>) elementType).getName()
+          : elementType.toString();
+      return "java.util.Iterator<" + element + ">";
+    }
+  }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+
+/**
+ * One synchronous call end to end against the in-process server: proxy dispatch, request creation,
+ * the transport call, response parsing and Gson conversion. Compare with the narrower benchmarks to
+ * see where the time goes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallPathBenchmark {
+  interface Service {
+    @GET("repos/{owner}/{repo}")
+    Call<ConverterBenchmark.Repo> repo(@Path("owner") String owner, @Path("repo") String repo,
+        @Query("ref") String ref);
+  }
+
+  private Service service;
+
+  @Setup public void setUp() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("https://api.example.com/")
+        .callFactory(
+            new InMemoryCallFactory(200, ConverterBenchmark.JSON, ConverterBenchmark.REPO_JSON))
+        .addConverterFactory(GsonConverterFactory.create())
+        .validateEagerly(true)
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Benchmark public ConverterBenchmark.Repo execute() throws IOException {
+    return service.repo("square", "retrofit", "master").execute().body();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.client.OkHttpCallFactory;
+import retrofit2.http.GET;
+
+/**
+ * Round trips through {@link OkHttpCallFactory} against a local server. {@code shared} sends every
+ * call through the factory's single client; {@code perCall} reproduces a client per call, which
+ * pays for a new connection every time. Sample time mode reports the p99 latency and the
+ * {@code connections} counter reports how many sockets were opened per operation.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectionReuseBenchmark {
+  interface Service {
+    @GET("/") Call<ResponseBody> get();
+  }
+
+  @Param({"shared", "perCall"})
+  String client;
+
+  private MockWebServer server;
+  private Service service;
+  private volatile OkHttpClient lastClient;
+
+  @Setup public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setBody("Hi");
+      }
+    });
+    server.start();
+
+    Call.Factory callFactory;
+    if ("shared".equals(client)) {
+      callFactory = OkHttpCallFactory.create();
+    } else {
+      callFactory = new Call.Factory() {
+        @Override public Call newCall(Request request) {
+          OkHttpClient client = new OkHttpClient();
+          lastClient = client;
+          return OkHttpCallFactory.create(client).newCall(request);
+        }
+      };
+    }
+
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .callFactory(callFactory)
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @TearDown public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long connections;
+
+    @Setup(Level.Iteration) public void reset() {
+      connections = 0;
+    }
+  }
+
+  @Benchmark public void roundTrip(Counters counters) throws Exception {
+    Response<ResponseBody> response = service.get().execute();
+    response.body().close();
+
+    if (server.takeRequest().getSequenceNumber() == 0) {
+      counters.connections++;
+    }
+
+    OkHttpClient client = lastClient;
+    if (client != null) {
+      // A discarded client keeps its idle socket (and a server thread) alive for minutes. Close it
+      // so the baseline measures the per-call handshake rather than exhausting the server.
+      client.connectionPool().evictAll();
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simpleframework.xml.Element;
+import org.simpleframework.xml.Root;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+import retrofit2.converter.moshi.MoshiConverterFactory;
+import retrofit2.converter.protobuf.PhoneProtos;
+import retrofit2.converter.protobuf.ProtoConverterFactory;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+import retrofit2.converter.simplexml.SimpleXmlConverterFactory;
+import retrofit2.converter.wire.Phone;
+import retrofit2.converter.wire.WireConverterFactory;
+
+/**
+ * Each converter module encoding a request body and decoding a response body. The JSON and XML
+ * converters share one model object; the protocol buffer converters use the {@code Phone} message
+ * from their tests, and scalars a plain string.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterBenchmark {
+  @Root(name = "repo")
+  public static class Repo {
+    @Element public String name;
+    @Element public String fullName;
+    @Element(required = false) public String description;
+    @Element public int stars;
+    @Element public boolean fork;
+  }
+
+  static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+  /** {@link #repo()} encoded as JSON, as served by the in-process server. */
+  static final byte[] REPO_JSON = ("{\"name\":\"retrofit\",\"fullName\":\"square/retrofit\","
+      + "\"description\":\"Type-safe HTTP client for Android and Java by Square, Inc.\","
+      + "\"stars\":17000,\"fork\":false}").getBytes();
+
+  private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+  @Param({"gson", "jackson", "moshi", "simplexml", "protobuf", "wire", "scalars"})
+  String converter;
+
+  private Converter<Object, RequestBody> requestConverter;
+  private Converter<ResponseBody, ?> responseConverter;
+  private Object value;
+  private MediaType contentType;
+  private byte[] encoded;
+
+  @Setup public void setUp() throws IOException {
+    Converter.Factory factory;
+    Type type;
+    switch (converter) {
+      case "gson":
+        factory = GsonConverterFactory.create();
+        type = Repo.class;
+        value = repo();
+        break;
+      case "jackson":
+        factory = JacksonConverterFactory.create();
+        type = Repo.class;
+        value = repo();
+        break;
+      case "moshi":
+        factory = MoshiConverterFactory.create();
+        type = Repo.class;
+        value = repo();
+        break;
+      case "simplexml":
+        factory = SimpleXmlConverterFactory.create();
+        type = Repo.class;
+        value = repo();
+        break;
+      case "protobuf":
+        factory = ProtoConverterFactory.create();
+        type = PhoneProtos.Phone.class;
+        value = PhoneProtos.Phone.newBuilder().setNumber("(519) 867-5309").build();
+        break;
+      case "wire":
+        factory = WireConverterFactory.create();
+        type = Phone.class;
+        value = new Phone("(519) 867-5309");
+        break;
+      case "scalars":
+        factory = ScalarsConverterFactory.create();
+        type = String.class;
+        value = "Retrofit turns your HTTP API into a Java interface.";
+        break;
+      default:
+        throw new AssertionError(converter);
+    }
+
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("http://localhost/")
+        .addConverterFactory(factory)
+        .build();
+    requestConverter = retrofit.requestBodyConverter(type, NO_ANNOTATIONS, NO_ANNOTATIONS);
+    responseConverter = retrofit.responseBodyConverter(type, NO_ANNOTATIONS);
+
+    // Decode exactly what the converter itself encodes.
+    RequestBody body = requestConverter.convert(value);
+    Buffer buffer = new Buffer();
+    body.writeTo(buffer);
+    contentType = body.contentType();
+    encoded = buffer.readByteArray();
+  }
+
+  private static Repo repo() {
+    Repo repo = new Repo();
+    repo.name = "retrofit";
+    repo.fullName = "square/retrofit";
+    repo.description = "Type-safe HTTP client for Android and Java by Square, Inc.";
+    repo.stars = 17000;
+    repo.fork = false;
+    return repo;
+  }
+
+  @Benchmark public long requestBody() throws IOException {
+    // Converters may defer encoding until the body is written, so write it.
+    Buffer buffer = new Buffer();
+    requestConverter.convert(value).writeTo(buffer);
+    return buffer.size();
+  }
+
+  @Benchmark public Object responseBody() throws IOException {
+    return responseConverter.convert(ResponseBody.create(contentType, encoded));
+  }
+}
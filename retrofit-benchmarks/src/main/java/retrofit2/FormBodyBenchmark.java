@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.FormBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a 20-field form, asking for its length and writing it, with {@link FormBody} and with
+ * the {@link FormRequestBody} that {@code @FormUrlEncoded} methods use. Some values need
+ * percent-encoding. Run with {@code -prof gc} to compare {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormBodyBenchmark {
+  private static final int FIELD_COUNT = 20;
+
+  private final String[] names = new String[FIELD_COUNT];
+  private final String[] values = new String[FIELD_COUNT];
+  private final Buffer sink = new Buffer();
+
+  @Setup public void setUp() {
+    for (int i = 0; i < FIELD_COUNT; i++) {
+      names[i] = "field_" + i;
+      values[i] = i % 4 == 0 ? "a value & more, " + i : "value" + i;
+    }
+  }
+
+  @Benchmark public long formBody() throws IOException {
+    FormBody.Builder builder = new FormBody.Builder();
+    for (int i = 0; i < FIELD_COUNT; i++) {
+      builder.add(names[i], values[i]);
+    }
+    FormBody body = builder.build();
+    long contentLength = body.contentLength();
+    body.writeTo(sink);
+    sink.clear();
+    return contentLength;
+  }
+
+  @Benchmark public long formRequestBody() throws IOException {
+    FormRequestBody.Builder builder = new FormRequestBody.Builder();
+    for (int i = 0; i < FIELD_COUNT; i++) {
+      builder.add(names[i], values[i], false);
+    }
+    FormRequestBody body = builder.build();
+    long contentLength = body.contentLength();
+    body.writeTo(sink);
+    sink.clear();
+    return contentLength;
+  }
+}
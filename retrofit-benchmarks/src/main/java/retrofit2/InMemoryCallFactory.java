@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+/**
+ * An in-process stand-in for an HTTP server: every call immediately returns the same canned
+ * response without touching a socket. Benchmarks use it to measure Retrofit's own overhead on the
+ * call path, free of network and server noise.
+ */
+final class InMemoryCallFactory implements Call.Factory {
+  private final int code;
+  private final MediaType contentType;
+  private final byte[] body;
+
+  InMemoryCallFactory(int code, MediaType contentType, byte[] body) {
+    this.code = code;
+    this.contentType = contentType;
+    this.body = body;
+  }
+
+  @Override public Call newCall(Request request) {
+    return new InMemoryCall(request);
+  }
+
+  Response respond(Request request) {
+    return new Response.Builder()
+        .request(request)
+        .protocol(Protocol.HTTP_1_1)
+        .code(code)
+        .message("OK")
+        .header("Content-Type", contentType.toString())
+        .body(ResponseBody.create(contentType, body))
+        .build();
+  }
+
+  final class InMemoryCall implements Call {
+    private final Request request;
+    private volatile boolean executed;
+    private volatile boolean canceled;
+
+    InMemoryCall(Request request) {
+      this.request = request;
+    }
+
+    @Override public Response execute() throws IOException {
+      executed = true;
+      if (canceled) throw new IOException("Canceled");
+      return respond(request);
+    }
+
+    @SuppressWarnings("unchecked") // Raw types, as for every transport Call.
+    @Override public void enqueue(Callback callback) {
+      executed = true;
+      if (canceled) {
+        callback.onFailure(this, new IOException("Canceled"));
+      } else {
+        callback.onResponse(this, respond(request));
+      }
+    }
+
+    @Override public boolean isExecuted() {
+      return executed;
+    }
+
+    @Override public void cancel() {
+      canceled = true;
+    }
+
+    @Override public boolean isCanceled() {
+      return canceled;
+    }
+
+    @Override public Call clone() {
+      return new InMemoryCall(request);
+    }
+
+    @Override public Request request() {
+      return request;
+    }
+  }
+}
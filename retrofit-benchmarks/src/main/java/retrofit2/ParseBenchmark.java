@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.http.Body;
+import retrofit2.http.Field;
+import retrofit2.http.FormUrlEncoded;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
+import retrofit2.http.Multipart;
+import retrofit2.http.POST;
+import retrofit2.http.Part;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+import retrofit2.http.QueryMap;
+
+/**
+ * Startup cost of one service method: {@link RequestFactoryParser#parse} alone, and the full
+ * {@link MethodHandler#create} which also looks up the call adapter and response converter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+  interface Service {
+    @GET("users") Call<ResponseBody> simple();
+
+    @Headers({
+        "Accept: application/vnd.github.v3+json",
+        "User-Agent: Retrofit-Benchmark"
+    })
+    @GET("repos/{owner}/{repo}/commits/{sha}/comments/{id}")
+    Call<ResponseBody> paths(@Header("Authorization") String authorization,
+        @Path("owner") String owner, @Path("repo") String repo, @Path("sha") String sha,
+        @Path("id") int id, @Query("page") int page, @QueryMap Map<String, String> options);
+
+    @FormUrlEncoded
+    @POST("repos/{owner}/{repo}/issues")
+    Call<ResponseBody> form(@Path("owner") String owner, @Path("repo") String repo,
+        @Field("title") String title, @Field("labels") List<String> labels);
+
+    @Multipart
+    @POST("upload")
+    Call<ResponseBody> multipart(@Part("description") RequestBody description,
+        @Part("file\"; filename=\"image.png\"") RequestBody file);
+
+    @POST("markdown")
+    Call<ResponseBody> body(@Body RequestBody body);
+  }
+
+  @Param({"simple", "paths", "form", "multipart", "body"})
+  String shape;
+
+  private Retrofit retrofit;
+  private Method method;
+
+  @Setup public void setUp() {
+    retrofit = new Retrofit.Builder()
+        .baseUrl("https://api.example.com/v3/")
+        .build();
+    for (Method candidate : Service.class.getDeclaredMethods()) {
+      if (candidate.getName().equals(shape)) {
+        method = candidate;
+      }
+    }
+  }
+
+  @Benchmark public RequestFactory requestFactory() {
+    return RequestFactoryParser.parse(method, ResponseBody.class, retrofit,
+        new MethodTiming(method));
+  }
+
+  @Benchmark public MethodHandler methodHandler() {
+    return MethodHandler.create(retrofit, method);
+  }
+}
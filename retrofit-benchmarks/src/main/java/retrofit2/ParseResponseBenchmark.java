@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.http.GET;
+
+/**
+ * {@link ExecutorDelegateCall#parseResponse} turning a raw response from the in-process server into
+ * a typed one: a successful body through the Gson converter, an unread {@code Void} body, an error
+ * body which is buffered, and a 204 without a body. Each operation includes creating the raw
+ * response, as a transport would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseResponseBenchmark {
+  interface Service {
+    @GET("repos/square/retrofit") Call<ConverterBenchmark.Repo> repo();
+  }
+
+  @Param({"success", "void", "error", "noContent"})
+  String outcome;
+
+  private InMemoryCallFactory server;
+  private ExecutorDelegateCall<?> call;
+  private Request request;
+
+  @Setup public void setUp() throws Exception {
+    int code = "error".equals(outcome) ? 404 : "noContent".equals(outcome) ? 204 : 200;
+    server = new InMemoryCallFactory(code, ConverterBenchmark.JSON, ConverterBenchmark.REPO_JSON);
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("https://api.example.com/")
+        .callFactory(server)
+        .addConverterFactory(GsonConverterFactory.create())
+        .build();
+
+    Type bodyType = "void".equals(outcome) ? Void.class : ConverterBenchmark.Repo.class;
+    Converter<ResponseBody, ?> converter =
+        retrofit.responseBodyConverter(bodyType, new Annotation[0]);
+    Method method = Service.class.getDeclaredMethod("repo");
+    RequestFactory requestFactory = RequestFactoryParser.parse(method, bodyType, retrofit,
+        new MethodTiming(method));
+    call = new ExecutorDelegateCall<>(server, requestFactory, null, converter);
+    request = requestFactory.create();
+  }
+
+  @Benchmark public Response<?> parseResponse() throws IOException {
+    return call.parseResponse(server.respond(request));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.util.concurrent.TimeUnit;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.http.GET;
+
+/**
+ * Throughput of invoking a service method through {@link Retrofit#create} with warm handlers. The
+ * returned call is never executed, so this isolates proxy dispatch and the method handler cache
+ * lookup as contention grows from 1 to 64 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProxyDispatchBenchmark {
+  interface Service {
+    @GET("/") Call<ResponseBody> get();
+  }
+
+  private Service service;
+
+  @Setup public void setUp() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("http://example.com/")
+        .validateEagerly(true)
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Benchmark @Threads(1) public Call<ResponseBody> dispatch01() {
+    return service.get();
+  }
+
+  @Benchmark @Threads(4) public Call<ResponseBody> dispatch04() {
+    return service.get();
+  }
+
+  @Benchmark @Threads(16) public Call<ResponseBody> dispatch16() {
+    return service.get();
+  }
+
+  @Benchmark @Threads(64) public Call<ResponseBody> dispatch64() {
+    return service.get();
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.http.Field;
+import retrofit2.http.FormUrlEncoded;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
+import retrofit2.http.Multipart;
+import retrofit2.http.POST;
+import retrofit2.http.Part;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+
+/**
+ * {@link RequestFactory#create} for common method shapes and mixes of {@code @Path}, {@code @Query},
+ * {@code @Field} and {@code @Part}. Run with {@code -prof gc} and compare
+ * {@code gc.alloc.rate.norm}, the bytes allocated per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestCreationBenchmark {
+  interface Service {
+    @GET("users") Call<ResponseBody> noArgs();
+
+    @Headers({
+        "Accept: application/vnd.github.v3+json",
+        "User-Agent: Retrofit-Benchmark"
+    })
+    @GET("users") Call<ResponseBody> staticHeaders();
+
+    @Headers("Accept: application/vnd.github.v3+json")
+    @GET("users") Call<ResponseBody> dynamicHeader(@Header("Authorization") String authorization);
+
+    @GET("repos/{owner}/{repo}/commits/{sha}/comments/{id}")
+    Call<ResponseBody> paths(@Path("owner") String owner, @Path("repo") String repo,
+        @Path("sha") String sha, @Path("id") int id);
+
+    @GET("search/repositories")
+    Call<ResponseBody> queries(@Query("q") String q, @Query("sort") String sort,
+        @Query("page") int page);
+
+    @FormUrlEncoded
+    @POST("login")
+    Call<ResponseBody> form(@Field("username") String username, @Field("password") String password);
+
+    @FormUrlEncoded
+    @POST("repos/{owner}/{repo}/issues")
+    Call<ResponseBody> mixed(@Path("owner") String owner, @Path("repo") String repo,
+        @Query("draft") boolean draft, @Field("title") String title, @Field("body") String body);
+
+    @Multipart
+    @POST("upload/{album}")
+    Call<ResponseBody> multipart(@Path("album") String album,
+        @Part("description") RequestBody description,
+        @Part("file\"; filename=\"image.png\"") RequestBody file);
+  }
+
+  private RequestFactory noArgs;
+  private RequestFactory staticHeaders;
+  private RequestFactory dynamicHeader;
+  private RequestFactory paths;
+  private RequestFactory queries;
+  private RequestFactory form;
+  private RequestFactory mixed;
+  private RequestFactory multipart;
+  private RequestBody description;
+  private RequestBody file;
+
+  @Setup public void setUp() throws Exception {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("https://api.example.com/v3/")
+        .build();
+    noArgs = parse(retrofit, "noArgs");
+    staticHeaders = parse(retrofit, "staticHeaders");
+    dynamicHeader = parse(retrofit, "dynamicHeader", String.class);
+    paths = parse(retrofit, "paths", String.class, String.class, String.class, int.class);
+    queries = parse(retrofit, "queries", String.class, String.class, int.class);
+    form = parse(retrofit, "form", String.class, String.class);
+    mixed = parse(retrofit, "mixed", String.class, String.class, boolean.class, String.class,
+        String.class);
+    multipart = parse(retrofit, "multipart", String.class, RequestBody.class, RequestBody.class);
+    description = RequestBody.create(MediaType.parse("text/plain"), "Hello, world!");
+    file = RequestBody.create(MediaType.parse("image/png"), new byte[1024]);
+  }
+
+  private static RequestFactory parse(Retrofit retrofit, String name, Class<?>... parameterTypes)
+      throws NoSuchMethodException {
+    Method method = Service.class.getDeclaredMethod(name, parameterTypes);
+    return RequestFactoryParser.parse(method, ResponseBody.class, retrofit,
+        new MethodTiming(method));
+  }
+
+  @Benchmark public Request noArgs() throws IOException {
+    return noArgs.create();
+  }
+
+  @Benchmark public Request staticHeaders() throws IOException {
+    return staticHeaders.create();
+  }
+
+  @Benchmark public Request dynamicHeader() throws IOException {
+    return dynamicHeader.create("token abc123");
+  }
+
+  @Benchmark public Request paths() throws IOException {
+    return paths.create("square", "retrofit", "4bc2f6a", 42);
+  }
+
+  @Benchmark public Request queries() throws IOException {
+    return queries.create("retrofit", "stars", 2);
+  }
+
+  @Benchmark public Request form() throws IOException {
+    return form.create("jake", "hunter2");
+  }
+
+  @Benchmark public Request mixed() throws IOException {
+    return mixed.create("square", "retrofit", true, "Crash on startup", "Steps to reproduce");
+  }
+
+  @Benchmark public Request multipart() throws IOException {
+    return multipart.create("vacation", description, file);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.http.GET;
+
+/**
+ * Turning an {@link okhttp3.Response} into the {@link Response} a caller sees, as
+ * {@code OkHttpCall} and {@link ExecutorDelegateCall} do for every call. The response has a typical
+ * set of API headers. Run with {@code -prof gc}; {@code gc.alloc.rate.norm} is the bytes allocated
+ * per response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseBridgeBenchmark {
+  interface Service {
+    @GET("repos/square/retrofit") Call<Void> repo();
+  }
+
+  private okhttp3.Response okResponse;
+  private Request request;
+  private ExecutorDelegateCall<Void> call;
+
+  @Setup public void setUp() throws Exception {
+    request = new Request.Builder().url("https://api.example.com/repos/square/retrofit").build();
+    okResponse = new okhttp3.Response.Builder()
+        .request(request)
+        .protocol(Protocol.HTTP_1_1)
+        .code(200)
+        .message("OK")
+        .header("Server", "nginx")
+        .header("Date", "Tue, 17 May 2016 10:00:00 GMT")
+        .header("Content-Type", "application/json; charset=utf-8")
+        .header("Cache-Control", "public, max-age=60, s-maxage=60")
+        .header("Vary", "Accept")
+        .header("ETag", "\"a18c3bded88eb5dbb5c849a489412bf3\"")
+        .header("Last-Modified", "Mon, 16 May 2016 21:04:21 GMT")
+        .header("X-RateLimit-Limit", "5000")
+        .header("X-RateLimit-Remaining", "4999")
+        .header("X-GitHub-Request-Id", "4A3B:2C1D:5E6F7A8:9B0C1D2")
+        .body(ResponseBody.create(MediaType.parse("application/json; charset=utf-8"), "{}"))
+        .build();
+
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("https://api.example.com/")
+        .build();
+    Converter<ResponseBody, Void> converter =
+        retrofit.responseBodyConverter(Void.class, new Annotation[0]);
+    Method method = Service.class.getDeclaredMethod("repo");
+    RequestFactory requestFactory = RequestFactoryParser.parse(method, Void.class, retrofit,
+        new MethodTiming(method));
+    call = new ExecutorDelegateCall<>(retrofit.callFactory(), requestFactory, null, converter);
+  }
+
+  /** What {@code OkHttpCall} hands to the layer above. */
+  @Benchmark public Response wrap() {
+    return Response.wrap(okResponse, request);
+  }
+
+  /** The full bridge, including detaching the body and wrapping the converted result. */
+  @Benchmark public Response<Void> parseResponse() throws IOException {
+    return call.parseResponse(Response.wrap(okResponse, request));
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Combining a base URL with a filled-in {@link UrlTemplate}. The {@code resolve} benchmarks are the
+ * old path, which hands the expanded relative URL to {@link HttpUrl}'s parser. The {@code direct}
+ * benchmarks start from the parsed base URL and only append the path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlAssemblyBenchmark {
+  @Param({
+      "users",
+      "users/{user}/repos",
+      "repos/{owner}/{repo}/commits/{sha}/comments/{id}",
+      "/search/{kind}?sort=stars"
+  })
+  String template;
+
+  private HttpUrl baseUrl;
+  private UrlTemplate urlTemplate;
+  private String[] values;
+
+  @Setup public void setUp() {
+    baseUrl = HttpUrl.parse("https://api.example.com/v3/");
+    urlTemplate = UrlTemplate.parse(template, RequestFactoryParser.PARAM_URL_REGEX);
+    values = new String[urlTemplate.variableCount()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = "value" + i;
+    }
+  }
+
+  @Benchmark public HttpUrl resolve() {
+    return baseUrl.resolve(urlTemplate.expand(values));
+  }
+
+  @Benchmark public HttpUrl direct() {
+    return urlTemplate.newUrlBuilder(baseUrl, values).build();
+  }
+
+  @Benchmark public HttpUrl resolveWithQuery() {
+    return baseUrl.newBuilder(urlTemplate.expand(values))
+        .addQueryParameter("page", "2")
+        .build();
+  }
+
+  @Benchmark public HttpUrl directWithQuery() {
+    return urlTemplate.newUrlBuilder(baseUrl, values)
+        .addQueryParameter("page", "2")
+        .build();
+  }
+}
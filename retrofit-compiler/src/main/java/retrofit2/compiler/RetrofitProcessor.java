@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.compiler;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import retrofit2.MethodHandler;
+import retrofit2.Retrofit;
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.HTTP;
+import retrofit2.http.OPTIONS;
+import retrofit2.http.PATCH;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+/**
+ * Generates an implementation of each service interface so that {@link Retrofit#create} does not
+ * need a {@link java.lang.reflect.Proxy}. For a service {@code com.example.GitHub} this writes
+ * {@code com.example.GitHub_Retrofit}, which resolves each method's {@link MethodHandler} once on
+ * first use, keeps it in a field and invokes it directly.
+ */
+public final class RetrofitProcessor extends AbstractProcessor {
+  private static final String GENERATED_SUFFIX = "_Retrofit";
+  private static final List<Class<? extends Annotation>> HTTP_METHODS = Arrays.asList(
+      DELETE.class, GET.class, HEAD.class, HTTP.class, OPTIONS.class, PATCH.class, POST.class,
+      PUT.class);
+
+  private final Set<String> generated = new LinkedHashSet<>();
+
+  @Override public Set<String> getSupportedAnnotationTypes() {
+    Set<String> types = new LinkedHashSet<>();
+    for (Class<? extends Annotation> annotation : HTTP_METHODS) {
+      types.add(annotation.getCanonicalName());
+    }
+    return types;
+  }
+
+  @Override public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+    Set<TypeElement> services = new LinkedHashSet<>();
+    for (Class<? extends Annotation> annotation : HTTP_METHODS) {
+      for (Element element : env.getElementsAnnotatedWith(annotation)) {
+        Element enclosing = element.getEnclosingElement();
+        if (enclosing.getKind() == ElementKind.INTERFACE) {
+          services.add((TypeElement) enclosing);
+        }
+      }
+    }
+
+    for (TypeElement service : services) {
+      String name = service.getQualifiedName().toString();
+      if (!generated.add(name) || !canImplement(service)) {
+        continue;
+      }
+      try {
+        brewJava(service).writeTo(processingEnv.getFiler());
+      } catch (IOException e) {
+        error(service, "Unable to write implementation for %s: %s", name, e.getMessage());
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Interfaces which Retrofit rejects, or which a class in the same package cannot implement, are
+   * left to the proxy so that they fail or work exactly as before. Generic interfaces are among
+   * them: the generated class would have no type arguments to give them.
+   */
+  private static boolean canImplement(TypeElement service) {
+    if (!service.getInterfaces().isEmpty() || !service.getTypeParameters().isEmpty()) {
+      return false;
+    }
+    for (Element e = service; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+      if (e.getModifiers().contains(Modifier.PRIVATE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private JavaFile brewJava(TypeElement service) {
+    String packageName = getPackage(service).getQualifiedName().toString();
+    String binaryName = processingEnv.getElementUtils().getBinaryName(service).toString();
+    String simpleName = packageName.isEmpty()
+        ? binaryName
+        : binaryName.substring(packageName.length() + 1);
+    ClassName serviceName = ClassName.get(service);
+    ClassName generatedName = ClassName.get(packageName, simpleName + GENERATED_SUFFIX);
+
+    TypeSpec.Builder result = TypeSpec.classBuilder(generatedName.simpleName())
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addSuperinterface(TypeName.get(service.asType()))
+        .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+            .addMember("value", "$S", "unchecked")
+            .build())
+        .addField(Retrofit.class, "retrofit", Modifier.PRIVATE, Modifier.FINAL)
+        .addMethod(MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(Retrofit.class, "retrofit")
+            .addStatement("this.retrofit = retrofit")
+            .build());
+
+    CodeBlock.Builder staticInit = CodeBlock.builder().beginControlFlow("try");
+    int index = 0;
+    for (ExecutableElement method : ElementFilter.methodsIn(service.getEnclosedElements())) {
+      Set<Modifier> modifiers = method.getModifiers();
+      if (!modifiers.contains(Modifier.ABSTRACT)) {
+        continue; // Default and static methods are inherited as-is.
+      }
+
+      String methodField = "METHOD_" + index;
+      String handlerField = "handler" + index;
+      index++;
+
+      result.addField(FieldSpec.builder(Method.class, methodField,
+          Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).build());
+      // Benign race: every thread resolves the same cached handler, whose fields are all final.
+      result.addField(MethodHandler.class, handlerField, Modifier.PRIVATE);
+
+      CodeBlock.Builder lookup = CodeBlock.builder()
+          .add("$N = $T.class.getDeclaredMethod($S", methodField, serviceName,
+              method.getSimpleName());
+      for (VariableElement parameter : method.getParameters()) {
+        TypeName erased =
+            TypeName.get(processingEnv.getTypeUtils().erasure(parameter.asType()));
+        lookup.add(", $T.class", erased);
+      }
+      staticInit.addStatement("$L)", lookup.build());
+
+      result.addMethod(brewMethod(method, generatedName, methodField, handlerField));
+    }
+    staticInit.nextControlFlow("catch ($T e)", NoSuchMethodException.class)
+        .addStatement("throw new $T(e)", AssertionError.class)
+        .endControlFlow();
+    if (index > 0) {
+      result.addStaticBlock(staticInit.build());
+    }
+
+    return JavaFile.builder(packageName, result.build())
+        .addFileComment("Generated code from Retrofit. Do not modify!")
+        .build();
+  }
+
+  private static MethodSpec brewMethod(ExecutableElement method, ClassName generatedName,
+      String methodField, String handlerField) {
+    // Not MethodSpec.overriding(): Retrofit reads the interface's annotations, so none are copied.
+    MethodSpec.Builder result = MethodSpec.methodBuilder(method.getSimpleName().toString())
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(TypeName.get(method.getReturnType()))
+        .varargs(method.isVarArgs());
+    for (TypeParameterElement typeParameter : method.getTypeParameters()) {
+      result.addTypeVariable(TypeVariableName.get(typeParameter));
+    }
+    for (TypeMirror thrownType : method.getThrownTypes()) {
+      result.addException(TypeName.get(thrownType));
+    }
+
+    // Parameters may shadow fields or locals, so fields are qualified and locals are allocated.
+    NameAllocator names = new NameAllocator();
+    CodeBlock.Builder args = CodeBlock.builder();
+    // Primitive arguments go in a long[] beside the Object[] so they are never boxed.
+    CodeBlock.Builder primitives = CodeBlock.builder();
+    boolean hasPrimitives = false;
+    List<? extends VariableElement> parameters = method.getParameters();
+    for (int i = 0; i < parameters.size(); i++) {
+      VariableElement parameter = parameters.get(i);
+      String name = names.newName(parameter.getSimpleName().toString(), parameter);
+      result.addParameter(TypeName.get(parameter.asType()), name);
+      String separator = i == 0 ? "" : ", ";
+      TypeKind kind = parameter.asType().getKind();
+      if (kind.isPrimitive()) {
+        hasPrimitives = true;
+        args.add(separator + "null");
+        primitives.add(separator).add(primitiveToLong(kind, name));
+      } else {
+        args.add(separator + "$N", name);
+        primitives.add(separator + "0L");
+      }
+    }
+    String handler = names.newName("handler");
+
+    result.addStatement("$T $N = this.$N", MethodHandler.class, handler, handlerField);
+    result.beginControlFlow("if ($N == null)", handler)
+        .addStatement("$N = this.$N = this.retrofit.methodHandler($T.$N)", handler, handlerField,
+            generatedName, methodField)
+        .endControlFlow();
+    if (parameters.isEmpty()) {
+      result.addStatement("return ($T) $N.invoke((Object[]) null)",
+          TypeName.get(method.getReturnType()), handler);
+    } else if (hasPrimitives) {
+      result.addStatement("return ($T) $N.invoke(new Object[] {$L}, new long[] {$L})",
+          TypeName.get(method.getReturnType()), handler, args.build(), primitives.build());
+    } else {
+      result.addStatement("return ($T) $N.invoke(new Object[] {$L})",
+          TypeName.get(method.getReturnType()), handler, args.build());
+    }
+    return result.build();
+  }
+
+  /** The encoding of {@link MethodHandler#invoke(Object[], long[])}. */
+  private static CodeBlock primitiveToLong(TypeKind kind, String name) {
+    switch (kind) {
+      case BOOLEAN:
+        return CodeBlock.of("$N ? 1L : 0L", name);
+      case FLOAT:
+        return CodeBlock.of("$T.floatToRawIntBits($N)", Float.class, name);
+      case DOUBLE:
+        return CodeBlock.of("$T.doubleToRawLongBits($N)", Double.class, name);
+      default:
+        return CodeBlock.of("$N", name);
+    }
+  }
+
+  private static PackageElement getPackage(Element element) {
+    while (element.getKind() != ElementKind.PACKAGE) {
+      element = element.getEnclosingElement();
+    }
+    return (PackageElement) element;
+  }
+
+  private void error(Element element, String message, Object... args) {
+    processingEnv.getMessager()
+        .printMessage(Diagnostic.Kind.ERROR, String.format(message, args), element);
+  }
+}
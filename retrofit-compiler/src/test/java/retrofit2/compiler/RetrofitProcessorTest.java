@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class RetrofitProcessorTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+  @Rule public final TemporaryFolder temp = new TemporaryFolder();
+
+  private File sources;
+  private File classes;
+  private Retrofit retrofit;
+
+  @Before public void setUp() throws IOException {
+    sources = temp.newFolder("sources");
+    classes = temp.newFolder("classes");
+    retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .build();
+  }
+
+  @Test public void nestedInterface() throws Exception {
+    ClassLoader loader = compile("test/Outer.java", ""
+        + "package test;\n"
+        + "import okhttp3.ResponseBody;\n"
+        + "import retrofit2.Call;\n"
+        + "import retrofit2.http.GET;\n"
+        + "public class Outer {\n"
+        + "  public interface Service {\n"
+        + "    @GET(\"nested\") Call<ResponseBody> get();\n"
+        + "  }\n"
+        + "}\n");
+    assertThat(generated("test/Outer$Service_Retrofit.java")).isTrue();
+
+    Object service = create(loader, "test.Outer$Service");
+    assertThat(service.getClass().getName()).isEqualTo("test.Outer$Service_Retrofit");
+    assertThat(call(service, "get", new Class<?>[0])).isEqualTo("/nested");
+  }
+
+  @Test public void varargsParameter() throws Exception {
+    ClassLoader loader = compile("test/Service.java", ""
+        + "package test;\n"
+        + "import okhttp3.ResponseBody;\n"
+        + "import retrofit2.Call;\n"
+        + "import retrofit2.http.GET;\n"
+        + "import retrofit2.http.Query;\n"
+        + "public interface Service {\n"
+        + "  @GET(\"search\") Call<ResponseBody> search(@Query(\"q\") String... terms);\n"
+        + "}\n");
+    assertThat(generated("test/Service_Retrofit.java")).isTrue();
+
+    Object service = create(loader, "test.Service");
+    Class<?>[] parameterTypes = {String[].class};
+    assertThat(call(service, "search", parameterTypes, (Object) new String[] {"a", "b"}))
+        .isEqualTo("/search?q=a&q=b");
+  }
+
+  @Test public void parametersShadowingGeneratedNames() throws Exception {
+    ClassLoader loader = compile("test/Service.java", ""
+        + "package test;\n"
+        + "import okhttp3.ResponseBody;\n"
+        + "import retrofit2.Call;\n"
+        + "import retrofit2.http.GET;\n"
+        + "import retrofit2.http.Query;\n"
+        + "public interface Service {\n"
+        + "  @GET(\"shadow\") Call<ResponseBody> get(@Query(\"a\") String handler,\n"
+        + "      @Query(\"b\") String handler0, @Query(\"c\") String retrofit,\n"
+        + "      @Query(\"d\") String METHOD_0);\n"
+        + "}\n");
+    assertThat(generated("test/Service_Retrofit.java")).isTrue();
+
+    Object service = create(loader, "test.Service");
+    Class<?>[] parameterTypes = {String.class, String.class, String.class, String.class};
+    assertThat(call(service, "get", parameterTypes, "1", "2", "3", "4"))
+        .isEqualTo("/shadow?a=1&b=2&c=3&d=4");
+  }
+
+  @Test public void primitiveParameters() throws Exception {
+    ClassLoader loader = compile("test/Service.java", ""
+        + "package test;\n"
+        + "import okhttp3.ResponseBody;\n"
+        + "import retrofit2.Call;\n"
+        + "import retrofit2.http.GET;\n"
+        + "import retrofit2.http.Path;\n"
+        + "import retrofit2.http.Query;\n"
+        + "public interface Service {\n"
+        + "  @GET(\"items/{id}\") Call<ResponseBody> get(@Path(\"id\") int id,\n"
+        + "      @Query(\"page\") long page, @Query(\"q\") String query,\n"
+        + "      @Query(\"all\") boolean all, @Query(\"c\") char c, @Query(\"s\") short s,\n"
+        + "      @Query(\"b\") byte b, @Query(\"f\") float f, @Query(\"d\") double d);\n"
+        + "}\n");
+    String source = new String(Files.readAllBytes(new File(sources, "test/Service_Retrofit.java")
+        .toPath()), StandardCharsets.UTF_8);
+    assertThat(source.contains("new long[] {")).isTrue();
+
+    Object service = create(loader, "test.Service");
+    Class<?>[] parameterTypes = {int.class, long.class, String.class, boolean.class, char.class,
+        short.class, byte.class, float.class, double.class};
+    assertThat(call(service, "get", parameterTypes, 42, 1L << 40, "x", true, 'z', (short) -3,
+        (byte) 7, 1.5f, -0.25)).isEqualTo(
+        "/items/42?page=1099511627776&q=x&all=true&c=z&s=-3&b=7&f=1.5&d=-0.25");
+    assertThat(call(service, "get", parameterTypes, -1, 0L, null, false, 'a', (short) 0,
+        (byte) -128, Float.NaN, 1e300)).isEqualTo(
+        "/items/-1?page=0&all=false&c=a&s=0&b=-128&f=NaN&d=1.0E300");
+  }
+
+  @Test public void interfacesLeftToProxy() throws Exception {
+    ClassLoader loader = compile("test/Services.java", ""
+        + "package test;\n"
+        + "import okhttp3.ResponseBody;\n"
+        + "import retrofit2.Call;\n"
+        + "import retrofit2.http.GET;\n"
+        + "public class Services {\n"
+        + "  public interface Generic<T> {\n"
+        + "    @GET(\"generic\") Call<ResponseBody> get();\n"
+        + "  }\n"
+        + "  public interface Base {\n"
+        + "  }\n"
+        + "  public interface Extending extends Base {\n"
+        + "    @GET(\"extending\") Call<ResponseBody> get();\n"
+        + "  }\n"
+        + "  private interface Hidden {\n"
+        + "    @GET(\"hidden\") Call<ResponseBody> get();\n"
+        + "  }\n"
+        + "}\n");
+    assertThat(generated("test/Services$Generic_Retrofit.java")).isFalse();
+    assertThat(generated("test/Services$Extending_Retrofit.java")).isFalse();
+    assertThat(generated("test/Services$Hidden_Retrofit.java")).isFalse();
+
+    Object service = create(loader, "test.Services$Generic");
+    assertThat(Proxy.isProxyClass(service.getClass())).isTrue();
+    assertThat(call(service, "get", new Class<?>[0])).isEqualTo("/generic");
+  }
+
+  /** Compiles {@code source} with the processor and returns a loader for the result. */
+  private ClassLoader compile(String path, String source) throws IOException {
+    File file = new File(sources, path);
+    assertThat(file.getParentFile().mkdirs()).isTrue();
+    Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+    Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(file);
+    JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+        Arrays.asList("-classpath", System.getProperty("java.class.path"),
+            "-d", classes.getPath(), "-s", sources.getPath()),
+        null, units);
+    task.setProcessors(Collections.singletonList(new RetrofitProcessor()));
+    assertThat(task.call()).isTrue();
+    fileManager.close();
+
+    return new URLClassLoader(new URL[] {classes.toURI().toURL()}, getClass().getClassLoader());
+  }
+
+  private boolean generated(String path) {
+    return new File(sources, path).exists();
+  }
+
+  private Object create(ClassLoader loader, String serviceName) throws ClassNotFoundException {
+    return retrofit.create(Class.forName(serviceName, true, loader));
+  }
+
+  /** Invokes {@code name} on {@code service}, executes the call and returns the request path. */
+  private String call(Object service, String name, Class<?>[] parameterTypes, Object... args)
+      throws Exception {
+    server.enqueue(new MockResponse());
+    Call<?> call = (Call<?>) service.getClass().getMethod(name, parameterTypes)
+        .invoke(service, args);
+    ((ResponseBody) call.execute().body()).close();
+    return server.takeRequest().getPath();
+  }
+}
@@ -19,7 +19,9 @@ import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Iterator;
 
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
@@ -48,19 +50,40 @@ public final class GsonConverterFactory extends Converter.Factory {
    * decoding from JSON (when no charset is specified by a header) will use UTF-8.
    */
   public static GsonConverterFactory create(Gson gson) {
-    return new GsonConverterFactory(gson);
+    return new GsonConverterFactory(gson, false);
   }
 
   private final Gson gson;
+  private final boolean streaming;
 
-  private GsonConverterFactory(Gson gson) {
+  private GsonConverterFactory(Gson gson, boolean streaming) {
     if (gson == null) throw new NullPointerException("gson == null");
     this.gson = gson;
+    this.streaming = streaming;
   }
 
+  /**
+   * Returns an instance whose request bodies are written by {@code gson} to the connection as the
+   * request is sent, instead of to a buffer when the call is created. See the converters README
+   * for how such bodies are sent and replayed.
+   */
+  public GsonConverterFactory withStreamingRequestBodies() {
+    return new GsonConverterFactory(gson, true);
+  }
+
+  /**
+   * A JSON array can be read as an {@code Iterator<T>}, which reads each element from the response
+   * as it is needed instead of holding the whole array. The iterator is also {@link
+   * java.io.Closeable}: close it when abandoning it before its end.
+   */
   @Override
   public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
                                                           Retrofit retrofit) {
+    if (getRawType(type) == Iterator.class && type instanceof ParameterizedType) {
+      Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+      return new GsonIteratorResponseBodyConverter<>(gson,
+          gson.getAdapter(TypeToken.get(elementType)));
+    }
     TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(type));
     return new GsonResponseBodyConverter<>(adapter);
   }
@@ -69,6 +92,6 @@ public final class GsonConverterFactory extends Converter.Factory {
   public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
                                                         Annotation[] methodAnnotations, Retrofit retrofit) {
     TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(type));
-    return new GsonRequestBodyConverter<>(gson, adapter);
+    return new GsonRequestBodyConverter<>(gson, adapter, streaming);
   }
 }
@@ -28,6 +28,7 @@ import java.nio.charset.Charset;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okio.Buffer;
+import okio.BufferedSink;
 import retrofit2.Converter;
 
 final class GsonRequestBodyConverter<T> implements Converter<T, RequestBody> {
@@ -36,14 +37,19 @@ final class GsonRequestBodyConverter<T> implements Converter<T, RequestBody> {
 
     private final Gson gson;
     private final TypeAdapter<T> adapter;
+    private final boolean streaming;
 
-    GsonRequestBodyConverter(Gson gson, TypeAdapter<T> adapter) {
+    GsonRequestBodyConverter(Gson gson, TypeAdapter<T> adapter, boolean streaming) {
         this.gson = gson;
         this.adapter = adapter;
+        this.streaming = streaming;
     }
 
     @Override
     public RequestBody convert(T value) throws IOException {
+        if (streaming) {
+            return new StreamingRequestBody<>(gson, adapter, value);
+        }
         Buffer buffer = new Buffer();
         Writer writer = new OutputStreamWriter(buffer.outputStream(), UTF_8);
         JsonWriter jsonWriter = gson.newJsonWriter(writer);
@@ -51,4 +57,30 @@ final class GsonRequestBodyConverter<T> implements Converter<T, RequestBody> {
         jsonWriter.close();
         return RequestBody.create(MEDIA_TYPE, buffer.readByteString());
     }
+
+    static final class StreamingRequestBody<T> extends RequestBody {
+        private final Gson gson;
+        private final TypeAdapter<T> adapter;
+        private final T value;
+
+        StreamingRequestBody(Gson gson, TypeAdapter<T> adapter, T value) {
+            this.gson = gson;
+            this.adapter = adapter;
+            this.value = value;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return MEDIA_TYPE;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            Writer writer = new OutputStreamWriter(sink.outputStream(), UTF_8);
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            adapter.write(jsonWriter, value);
+            // Flush rather than close: the sink belongs to the transport.
+            jsonWriter.flush();
+        }
+    }
 }
@@ -42,14 +42,25 @@ public final class JacksonConverterFactory extends Converter.Factory {
 
   /** Create an instance using {@code mapper} for conversion. */
   public static JacksonConverterFactory create(ObjectMapper mapper) {
-    return new JacksonConverterFactory(mapper);
+    return new JacksonConverterFactory(mapper, false);
   }
 
   private final ObjectMapper mapper;
+  private final boolean streaming;
 
-  private JacksonConverterFactory(ObjectMapper mapper) {
+  private JacksonConverterFactory(ObjectMapper mapper, boolean streaming) {
     if (mapper == null) throw new NullPointerException("mapper == null");
     this.mapper = mapper;
+    this.streaming = streaming;
+  }
+
+  /**
+   * Returns an instance whose request bodies are written by the mapper to the connection's output
+   * stream, instead of to a byte array when the call is created. See the converters README for how
+   * such bodies are sent and replayed.
+   */
+  public JacksonConverterFactory withStreamingRequestBodies() {
+    return new JacksonConverterFactory(mapper, true);
   }
 
   @Override
@@ -65,6 +76,6 @@ public final class JacksonConverterFactory extends Converter.Factory {
       Annotation[] parameterAnnotations, Annotation[] methodAnnotations, Retrofit retrofit) {
     JavaType javaType = mapper.getTypeFactory().constructType(type);
     ObjectWriter writer = mapper.writerWithType(javaType);
-    return new JacksonRequestBodyConverter<>(writer);
+    return new JacksonRequestBodyConverter<>(writer, streaming);
   }
 }
@@ -15,23 +15,49 @@
  */
 package retrofit2.converter.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import java.io.IOException;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
+import okio.BufferedSink;
 import retrofit2.Converter;
 
 final class JacksonRequestBodyConverter<T> implements Converter<T, RequestBody> {
   private static final MediaType MEDIA_TYPE = MediaType.parse("application/json; charset=UTF-8");
 
   private final ObjectWriter adapter;
+  private final boolean streaming;
 
-  JacksonRequestBodyConverter(ObjectWriter adapter) {
-    this.adapter = adapter;
+  JacksonRequestBodyConverter(ObjectWriter adapter, boolean streaming) {
+    // A streaming body writes into the transport's sink, which Jackson must not close.
+    this.adapter = streaming ? adapter.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET) : adapter;
+    this.streaming = streaming;
   }
 
   @Override public RequestBody convert(T value) throws IOException {
+    if (streaming) {
+      return new StreamingRequestBody(adapter, value);
+    }
     byte[] bytes = adapter.writeValueAsBytes(value);
     return RequestBody.create(MEDIA_TYPE, bytes);
   }
+
+  static final class StreamingRequestBody extends RequestBody {
+    private final ObjectWriter adapter;
+    private final Object value;
+
+    StreamingRequestBody(ObjectWriter adapter, Object value) {
+      this.adapter = adapter;
+      this.value = value;
+    }
+
+    @Override public MediaType contentType() {
+      return MEDIA_TYPE;
+    }
+
+    @Override public void writeTo(BufferedSink sink) throws IOException {
+      adapter.writeValue(sink.outputStream(), value);
+    }
+  }
 }
@@ -27,13 +27,17 @@ import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import java.io.IOException;
+import java.lang.annotation.Annotation;
+import okhttp3.RequestBody;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import retrofit2.Call;
+import retrofit2.Converter;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
@@ -108,13 +112,14 @@ public class JacksonConverterFactoryTest {
 
   @Rule public final MockWebServer server = new MockWebServer();
 
+  private ObjectMapper mapper;
   private Service service;
 
   @Before public void setUp() {
     SimpleModule module = new SimpleModule();
     module.addSerializer(AnInterface.class, new AnInterfaceSerializer());
     module.addDeserializer(AnInterface.class, new AnInterfaceDeserializer());
-    ObjectMapper mapper = new ObjectMapper();
+    mapper = new ObjectMapper();
     mapper.registerModule(module);
     mapper.configure(MapperFeature.AUTO_DETECT_GETTERS, false);
     mapper.configure(MapperFeature.AUTO_DETECT_SETTERS, false);
@@ -156,4 +161,39 @@ public class JacksonConverterFactoryTest {
     assertThat(request.getBody().readUtf8()).isEqualTo("{\"name\":\"value\"}");
     assertThat(request.getHeader("Content-Type")).isEqualTo("application/json; charset=UTF-8");
   }
+
+  @Test public void streamingRequestBody() throws IOException, InterruptedException {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(JacksonConverterFactory.create(mapper).withStreamingRequestBodies())
+        .build();
+    Service service = retrofit.create(Service.class);
+    server.enqueue(new MockResponse().setBody("{\"name\":\"value\"}"));
+
+    Call<AnInterface> call = service.anInterface(new AnImplementation("value"));
+    assertThat(call.execute().body().getName()).isEqualTo("value");
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getBody().readUtf8()).isEqualTo("{\"name\":\"value\"}");
+    assertThat(request.getHeader("Content-Type")).isEqualTo("application/json; charset=UTF-8");
+    assertThat(request.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+  }
+  @Test public void streamingRequestBodyIsSerializedOnEachWrite() throws IOException {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(JacksonConverterFactory.create(mapper).withStreamingRequestBodies())
+        .build();
+    Converter<AnInterface, RequestBody> converter =
+        retrofit.requestBodyConverter(AnInterface.class, new Annotation[0], new Annotation[0]);
+    RequestBody body = converter.convert(new AnImplementation("value"));
+    assertThat(body.contentLength()).isEqualTo(-1L);
+
+    Buffer first = new Buffer();
+    body.writeTo(first);
+    Buffer replay = new Buffer();
+    body.writeTo(replay);
+    assertThat(first.readUtf8()).isEqualTo("{\"name\":\"value\"}");
+    assertThat(replay.readUtf8()).isEqualTo("{\"name\":\"value\"}");
+  }
+
 }
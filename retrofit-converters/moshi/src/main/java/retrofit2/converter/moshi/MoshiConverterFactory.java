@@ -18,7 +18,9 @@ package retrofit2.converter.moshi;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Iterator;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
@@ -31,6 +33,10 @@ import retrofit2.Retrofit;
  * all types. If you are mixing JSON serialization with something else (such as protocol buffers),
  * you must {@linkplain Retrofit.Builder#addConverterFactory(Converter.Factory) add this instance}
  * last to allow the other converters a chance to see their types.
+ * <p>
+ * A JSON array can be read as an {@code Iterator<T>}, which reads each element from the response
+ * as it is needed instead of holding the whole array. The iterator is also {@link
+ * java.io.Closeable}: close it when abandoning it before its end.
  */
 public final class MoshiConverterFactory extends Converter.Factory {
   /** Create an instance using a default {@link Moshi} instance for conversion. */
@@ -40,19 +46,34 @@ public final class MoshiConverterFactory extends Converter.Factory {
 
   /** Create an instance using {@code moshi} for conversion. */
   public static MoshiConverterFactory create(Moshi moshi) {
-    return new MoshiConverterFactory(moshi);
+    return new MoshiConverterFactory(moshi, false);
   }
 
   private final Moshi moshi;
+  private final boolean streaming;
 
-  private MoshiConverterFactory(Moshi moshi) {
+  private MoshiConverterFactory(Moshi moshi, boolean streaming) {
     if (moshi == null) throw new NullPointerException("moshi == null");
     this.moshi = moshi;
+    this.streaming = streaming;
+  }
+
+  /**
+   * Returns an instance whose request bodies are encoded by {@code moshi} into the connection's
+   * sink, instead of into a buffer when the call is created. See the converters README for how such
+   * bodies are sent and replayed.
+   */
+  public MoshiConverterFactory withStreamingRequestBodies() {
+    return new MoshiConverterFactory(moshi, true);
   }
 
   @Override
   public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
       Retrofit retrofit) {
+    if (getRawType(type) == Iterator.class && type instanceof ParameterizedType) {
+      Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+      return new MoshiIteratorResponseBodyConverter<>(moshi.adapter(elementType));
+    }
     JsonAdapter<?> adapter = moshi.adapter(type);
     return new MoshiResponseBodyConverter<>(adapter);
   }
@@ -61,6 +82,6 @@ public final class MoshiConverterFactory extends Converter.Factory {
   public Converter<?, RequestBody> requestBodyConverter(Type type,
       Annotation[] parameterAnnotations, Annotation[] methodAnnotations, Retrofit retrofit) {
     JsonAdapter<?> adapter = moshi.adapter(type);
-    return new MoshiRequestBodyConverter<>(adapter);
+    return new MoshiRequestBodyConverter<>(adapter, streaming);
   }
 }
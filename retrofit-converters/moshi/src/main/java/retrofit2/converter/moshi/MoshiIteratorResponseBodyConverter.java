@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.moshi;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+/**
+ * Converts a JSON array into an {@link Iterator} which reads each element from the response body
+ * when it is requested, so that arrays of any size take constant memory.
+ */
+final class MoshiIteratorResponseBodyConverter<T> implements Converter<ResponseBody, Iterator<T>> {
+  private final JsonAdapter<T> adapter;
+
+  MoshiIteratorResponseBodyConverter(JsonAdapter<T> adapter) {
+    this.adapter = adapter;
+  }
+
+  @Override public Iterator<T> convert(ResponseBody value) throws IOException {
+    JsonReader reader = JsonReader.of(value.source());
+    try {
+      reader.beginArray();
+    } catch (IOException | RuntimeException e) {
+      value.close();
+      throw e;
+    }
+    return new JsonArrayIterator<>(value, reader, adapter);
+  }
+
+  /**
+   * Reads one element per {@link #next()}. The body is closed once the array ends, an element
+   * fails to read, or {@link #close()} is called. I/O errors are thrown wrapped in a
+   * {@link RuntimeException}.
+   */
+  static final class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+    private final ResponseBody body;
+    private final JsonReader reader;
+    private final JsonAdapter<T> adapter;
+    private boolean closed;
+
+    JsonArrayIterator(ResponseBody body, JsonReader reader, JsonAdapter<T> adapter) {
+      this.body = body;
+      this.reader = reader;
+      this.adapter = adapter;
+    }
+
+    @Override public boolean hasNext() {
+      if (closed) return false;
+      try {
+        if (reader.hasNext()) return true;
+        reader.endArray();
+      } catch (IOException e) {
+        close();
+        throw new RuntimeException(e);
+      }
+      close();
+      return false;
+    }
+
+    @Override public T next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      try {
+        return adapter.fromJson(reader);
+      } catch (IOException e) {
+        close();
+        throw new RuntimeException(e);
+      } catch (RuntimeException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @Override public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public void close() {
+      closed = true;
+      body.close();
+    }
+  }
+}
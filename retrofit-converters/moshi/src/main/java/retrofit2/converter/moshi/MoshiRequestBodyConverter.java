@@ -20,20 +20,44 @@ import java.io.IOException;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okio.Buffer;
+import okio.BufferedSink;
 import retrofit2.Converter;
 
 final class MoshiRequestBodyConverter<T> implements Converter<T, RequestBody> {
   private static final MediaType MEDIA_TYPE = MediaType.parse("application/json; charset=UTF-8");
 
   private final JsonAdapter<T> adapter;
+  private final boolean streaming;
 
-  MoshiRequestBodyConverter(JsonAdapter<T> adapter) {
+  MoshiRequestBodyConverter(JsonAdapter<T> adapter, boolean streaming) {
     this.adapter = adapter;
+    this.streaming = streaming;
   }
 
   @Override public RequestBody convert(T value) throws IOException {
+    if (streaming) {
+      return new StreamingRequestBody<>(adapter, value);
+    }
     Buffer buffer = new Buffer();
     adapter.toJson(buffer, value);
     return RequestBody.create(MEDIA_TYPE, buffer.readByteString());
   }
+
+  static final class StreamingRequestBody<T> extends RequestBody {
+    private final JsonAdapter<T> adapter;
+    private final T value;
+
+    StreamingRequestBody(JsonAdapter<T> adapter, T value) {
+      this.adapter = adapter;
+      this.value = value;
+    }
+
+    @Override public MediaType contentType() {
+      return MEDIA_TYPE;
+    }
+
+    @Override public void writeTo(BufferedSink sink) throws IOException {
+      adapter.toJson(sink, value);
+    }
+  }
 }
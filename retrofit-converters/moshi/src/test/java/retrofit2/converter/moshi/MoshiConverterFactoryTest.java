@@ -20,21 +20,30 @@ import com.squareup.moshi.JsonReader;
 import com.squareup.moshi.JsonWriter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.ToJson;
+import java.io.Closeable;
 import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import okhttp3.RequestBody;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import retrofit2.Call;
+import retrofit2.Converter;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.moshi.MoshiConverterFactory;
 import retrofit2.http.Body;
+import retrofit2.http.GET;
 import retrofit2.http.POST;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 public final class MoshiConverterFactoryTest {
   interface AnInterface {
@@ -80,14 +89,16 @@ public final class MoshiConverterFactoryTest {
   interface Service {
     @POST("/") Call<AnImplementation> anImplementation(@Body AnImplementation impl);
     @POST("/") Call<AnInterface> anInterface(@Body AnInterface impl);
+    @GET("/") Call<Iterator<AnImplementation>> iterator();
   }
 
   @Rule public final MockWebServer server = new MockWebServer();
 
+  private Moshi moshi;
   private Service service;
 
   @Before public void setUp() {
-    Moshi moshi = new Moshi.Builder()
+    moshi = new Moshi.Builder()
         .add(new AnInterfaceAdapter())
         .build();
     Retrofit retrofit = new Retrofit.Builder()
@@ -122,4 +133,70 @@ public final class MoshiConverterFactoryTest {
     assertThat(request.getBody().readUtf8()).isEqualTo("{\"theName\":\"value\"}");
     assertThat(request.getHeader("Content-Type")).isEqualTo("application/json; charset=UTF-8");
   }
+
+  @Test public void streamingRequestBody() throws IOException, InterruptedException {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(MoshiConverterFactory.create(moshi).withStreamingRequestBodies())
+        .build();
+    Service service = retrofit.create(Service.class);
+    server.enqueue(new MockResponse().setBody("{\"name\":\"value\"}"));
+
+    Call<AnInterface> call = service.anInterface(new AnImplementation("value"));
+    assertThat(call.execute().body().getName()).isEqualTo("value");
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getBody().readUtf8()).isEqualTo("{\"name\":\"value\"}");
+    assertThat(request.getHeader("Content-Type")).isEqualTo("application/json; charset=UTF-8");
+    assertThat(request.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+  }
+  @Test public void streamingRequestBodyIsSerializedOnEachWrite() throws IOException {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(MoshiConverterFactory.create(moshi).withStreamingRequestBodies())
+        .build();
+    Converter<AnInterface, RequestBody> converter =
+        retrofit.requestBodyConverter(AnInterface.class, new Annotation[0], new Annotation[0]);
+    RequestBody body = converter.convert(new AnImplementation("value"));
+    assertThat(body.contentLength()).isEqualTo(-1L);
+
+    Buffer first = new Buffer();
+    body.writeTo(first);
+    Buffer replay = new Buffer();
+    body.writeTo(replay);
+    assertThat(first.readUtf8()).isEqualTo("{\"name\":\"value\"}");
+    assertThat(replay.readUtf8()).isEqualTo("{\"name\":\"value\"}");
+  }
+
+
+  @Test public void iteratorReadsArrayElements() throws IOException {
+    server.enqueue(new MockResponse().setBody("[{\"theName\":\"a\"},{\"theName\":\"b\"}]"));
+
+    Iterator<AnImplementation> iterator = service.iterator().execute().body();
+    assertThat(iterator.hasNext()).isTrue();
+    assertThat(iterator.next().theName).isEqualTo("a");
+    assertThat(iterator.next().theName).isEqualTo("b");
+    assertThat(iterator.hasNext()).isFalse();
+    try {
+      iterator.next();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+  }
+
+  @Test public void iteratorOfEmptyArray() throws IOException {
+    server.enqueue(new MockResponse().setBody("[]"));
+
+    Iterator<AnImplementation> iterator = service.iterator().execute().body();
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test public void iteratorCanBeClosedEarly() throws IOException {
+    server.enqueue(new MockResponse().setBody("[{\"theName\":\"a\"},{\"theName\":\"b\"}]"));
+
+    Iterator<AnImplementation> iterator = service.iterator().execute().body();
+    assertThat(iterator.next().theName).isEqualTo("a");
+    ((Closeable) iterator).close();
+    assertThat(iterator.hasNext()).isFalse();
+  }
 }
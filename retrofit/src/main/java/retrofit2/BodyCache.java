@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Request;
+
+/**
+ * An in-memory cache of converted response bodies for methods annotated {@link
+ * retrofit2.http.CacheBody @CacheBody}. A hit returns the body that was converted for an earlier
+ * identical request, with the same method, URL and headers, without any I/O or conversion.
+ * <p>
+ * A successful response is stored only if its {@code Cache-Control} header has a positive {@code
+ * max-age} and neither {@code no-store} nor {@code no-cache}. It is served until that age is reached,
+ * counting any {@code Age} the response already had. When the cache holds {@link #maxEntries()}
+ * bodies the least recently used one is evicted.
+ * <p>
+ * Hits share the same body instance, so cached bodies must not be modified.
+ */
+public final class BodyCache {
+    static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final int maxEntries;
+
+    // All guarded by this.
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hitCount;
+    private long missCount;
+
+    public BodyCache(int maxEntries) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries < 1: " + maxEntries);
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the fresh cached response of {@code owner} for {@code request}, or null. Each method
+     * is its own owner, so responses of other methods, which may have a different body type, never
+     * match.
+     */
+    @SuppressWarnings("unchecked") // Only owner stores entries for it, with its body type.
+    <T> Response<T> get(Object owner, Request request) {
+        Key key = new Key(owner, SingleFlight.key(request));
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAtNanos - System.nanoTime() <= 0) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+        }
+        return Response.success((T) entry.body, entry.rawResponse);
+    }
+
+    /** Store {@code response} for {@code request} if its headers allow it. */
+    void put(Object owner, Request request, Response<?> response) {
+        if (!response.isSuccessful()) return;
+        CacheControl cacheControl = response.cacheControl();
+        if (cacheControl.noStore() || cacheControl.noCache()) return;
+        long freshSeconds = cacheControl.maxAgeSeconds() - ageSeconds(response);
+        if (freshSeconds <= 0) return;
+
+        Key key = new Key(owner, SingleFlight.key(request));
+        Entry entry = new Entry(response, response.body(),
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(freshSeconds));
+        synchronized (this) {
+            entries.put(key, entry);
+            if (entries.size() > maxEntries) {
+                Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /** The {@code Age} the response had when it was received, in seconds. */
+    private static long ageSeconds(Response<?> response) {
+        String age = response.header("Age");
+        if (age == null) return 0;
+        try {
+            return Math.max(0, Long.parseLong(age.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    /** The number of bodies currently cached, including those which have expired. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** The number of calls served from this cache. */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /** The number of calls of cached methods which were not served from this cache. */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /** Remove every cached body. */
+    public synchronized void evictAll() {
+        entries.clear();
+    }
+
+    private static final class Key {
+        final Object owner;
+        final String request;
+
+        Key(Object owner, String request) {
+            this.owner = owner;
+            this.request = request;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key
+                    && ((Key) other).owner == owner
+                    && ((Key) other).request.equals(request);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(owner) + request.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        /** Status line and headers for hits. Its own body is not read. */
+        final Response<?> rawResponse;
+        final Object body;
+        final long expiresAtNanos;
+
+        Entry(Response<?> rawResponse, Object body, long expiresAtNanos) {
+            this.rawResponse = rawResponse;
+            this.body = body;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
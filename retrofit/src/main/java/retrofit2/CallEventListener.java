@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import okhttp3.Request;
+
+/**
+ * Observes the progress of each {@link Call} created by a {@link Retrofit} instance, for example to
+ * record metrics. Every method does nothing by default; override the ones you need.
+ * <p>
+ * Events carry a {@link System#nanoTime()} timestamp, which is only meaningful relative to other
+ * events. They are delivered on the thread doing the work, so implementations must be thread-safe
+ * and fast. A call that {@linkplain #callStart starts} ends with either {@link #bodyConverted} or
+ * {@link #callFailed}; {@link #callCanceled} may arrive at any time.
+ *
+ * @see Retrofit.Builder#callEventListener
+ */
+public abstract class CallEventListener {
+    /** A listener which ignores every event. Calls skip reading the clock when it is in use. */
+    public static final CallEventListener NONE = new CallEventListener() {
+    };
+
+    /** Invoked when {@code call} is executed or enqueued. */
+    public void callStart(Call<?> call, long nanoTime) {
+    }
+
+    /** Invoked once the request of {@code call} has been created from the method arguments. */
+    public void requestBuilt(Call<?> call, Request request, long nanoTime) {
+    }
+
+    /**
+     * Invoked when the transport returns {@code response}, before its body is read. Its body must
+     * not be consumed.
+     */
+    public void responseHeaders(Call<?> call, Response<?> response, long nanoTime) {
+    }
+
+    /**
+     * Invoked once the response of {@code call} is complete. For successful responses this is after
+     * the body has been converted.
+     */
+    public void bodyConverted(Call<?> call, long nanoTime) {
+    }
+
+    /**
+     * Invoked when {@code call} fails to create its request, talk to the server or convert the
+     * response.
+     */
+    public void callFailed(Call<?> call, Throwable t, long nanoTime) {
+    }
+
+    /** Invoked when {@code call} is {@linkplain Call#cancel() canceled}. */
+    public void callCanceled(Call<?> call, long nanoTime) {
+    }
+}
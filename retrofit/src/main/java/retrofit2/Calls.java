@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static retrofit2.Utils.checkNotNull;
+
+/**
+ * Runs many calls with a bounded number in flight at once. Calls are {@linkplain
+ * Call#enqueue(Callback) enqueued}, so they run on the threads of their {@link Call.Factory}: no
+ * thread is started per call, and a new call is enqueued each time one completes.
+ */
+public final class Calls {
+    private Calls() {
+        throw new AssertionError("No instances.");
+    }
+
+    /** Receives the outcome of each call of a {@link Batch}, in the order the calls complete. */
+    public interface BatchCallback<T> {
+        /** Invoked for a received HTTP response of the call at {@code index}. */
+        void onResponse(int index, Call<T> call, Response<T> response);
+
+        /** Invoked when the call at {@code index} fails, including when it was canceled. */
+        void onFailure(int index, Call<T> call, Throwable t);
+
+        /**
+         * Invoked once no call of the batch is in flight and no more will be enqueued: either every
+         * call has completed or the batch was {@linkplain Batch#cancel() canceled}.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Send every one of {@code calls}, in iteration order, keeping at most {@code concurrency} in
+     * flight, and block until all of them have a response. Returns the responses in the order of
+     * {@code calls}.
+     * <p>
+     * When a call fails the calls still in flight are canceled, the rest are never sent, and its
+     * exception is thrown. Like {@link Call#execute()}, this must not be called on the thread which
+     * delivers the callbacks of {@code calls}.
+     *
+     * @throws IOException      if a problem occurred talking to the server.
+     * @throws RuntimeException (and subclasses) if an unexpected error occurs creating a request or
+     *                          decoding a response.
+     */
+    public static <T> List<Response<T>> executeAll(Collection<? extends Call<T>> calls,
+                                                   int concurrency) throws IOException {
+        Collector<T> collector = new Collector<>(checkNotNull(calls, "calls == null").size());
+        Batch<T> batch = new Batch<>(calls, concurrency, collector);
+        collector.batch = batch;
+        batch.start();
+        try {
+            collector.done.await();
+        } catch (InterruptedException e) {
+            batch.cancel();
+            throw new InterruptedIOException();
+        }
+
+        Throwable failure = collector.failure();
+        if (failure == null) {
+            return collector.responses;
+        } else if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new RuntimeException(failure);
+    }
+
+    /**
+     * Send every one of {@code calls}, in iteration order, keeping at most {@code concurrency} in
+     * flight, and notify {@code callback} of each outcome as it arrives. Returns the batch, which
+     * can be canceled as a whole.
+     */
+    public static <T> Batch<T> enqueueAll(Collection<? extends Call<T>> calls, int concurrency,
+                                          BatchCallback<T> callback) {
+        Batch<T> batch = new Batch<>(calls, concurrency, checkNotNull(callback, "callback == null"));
+        batch.start();
+        return batch;
+    }
+
+    /** Gathers the responses of a batch in order, canceling it on the first failure. */
+    private static final class Collector<T> implements BatchCallback<T> {
+        final List<Response<T>> responses;
+        final CountDownLatch done = new CountDownLatch(1);
+        Batch<T> batch;
+
+        // Guarded by this.
+        private Throwable failure;
+
+        Collector(int size) {
+            responses = Arrays.asList(newResponseArray(size));
+        }
+
+        @SuppressWarnings("unchecked") // Generic array creation.
+        private static <T> Response<T>[] newResponseArray(int size) {
+            return new Response[size];
+        }
+
+        @Override
+        public void onResponse(int index, Call<T> call, Response<T> response) {
+            responses.set(index, response);
+        }
+
+        @Override
+        public void onFailure(int index, Call<T> call, Throwable t) {
+            synchronized (this) {
+                if (failure != null) return;
+                failure = t;
+            }
+            batch.cancel();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        synchronized Throwable failure() {
+            return failure;
+        }
+    }
+
+    /** Calls which are sent with a bounded number in flight. */
+    public static final class Batch<T> {
+        private final List<Call<T>> calls;
+        private final int concurrency;
+        private final BatchCallback<T> callback;
+
+        // All guarded by this.
+        private final boolean[] completed;
+        private int nextIndex;
+        private int inFlight;
+        private boolean canceled;
+        /** True while one thread is enqueuing calls, so completions don't recurse into it. */
+        private boolean enqueuing;
+        private boolean notifiedComplete;
+
+        Batch(Collection<? extends Call<T>> calls, int concurrency, BatchCallback<T> callback) {
+            checkNotNull(calls, "calls == null");
+            if (concurrency < 1) throw new IllegalArgumentException("concurrency < 1: " + concurrency);
+            this.calls = new ArrayList<>(calls);
+            for (Call<T> call : this.calls) {
+                checkNotNull(call, "calls contains null");
+            }
+            this.concurrency = concurrency;
+            this.callback = callback;
+            this.completed = new boolean[this.calls.size()];
+        }
+
+        void start() {
+            enqueueCalls();
+        }
+
+        /** The number of calls in this batch. */
+        public int size() {
+            return calls.size();
+        }
+
+        /**
+         * Cancel the calls in flight and never send the calls which are still waiting. The calls in
+         * flight report their failure to the callback as usual.
+         */
+        public void cancel() {
+            List<Call<T>> toCancel = new ArrayList<>();
+            synchronized (this) {
+                if (canceled) return;
+                canceled = true;
+                for (int i = 0; i < nextIndex; i++) {
+                    if (!completed[i]) toCancel.add(calls.get(i));
+                }
+            }
+            for (Call<T> call : toCancel) {
+                call.cancel();
+            }
+            enqueueCalls();
+        }
+
+        public synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        /** Fill every free slot with the next call, or report completion once none are left. */
+        private void enqueueCalls() {
+            synchronized (this) {
+                if (enqueuing) return;
+                enqueuing = true;
+            }
+            while (true) {
+                final int index;
+                final Call<T> call;
+                synchronized (this) {
+                    boolean exhausted = canceled || nextIndex == calls.size();
+                    if (exhausted || inFlight == concurrency) {
+                        enqueuing = false;
+                        if (!exhausted || inFlight > 0 || notifiedComplete) return;
+                        notifiedComplete = true;
+                        break;
+                    }
+                    index = nextIndex++;
+                    inFlight++;
+                    call = calls.get(index);
+                }
+
+                try {
+                    call.enqueue(new Callback<T>() {
+                        @Override
+                        public void onResponse(Call<T> ignored, Response<T> response) {
+                            callback.onResponse(index, call, response);
+                            complete(index);
+                        }
+
+                        @Override
+                        public void onFailure(Call<T> ignored, Throwable t) {
+                            callback.onFailure(index, call, t);
+                            complete(index);
+                        }
+                    });
+                } catch (Throwable t) {
+                    // For example, a call which was already executed.
+                    callback.onFailure(index, call, t);
+                    synchronized (this) {
+                        completed[index] = true;
+                        inFlight--;
+                    }
+                }
+            }
+            callback.onComplete();
+        }
+
+        private void complete(int index) {
+            synchronized (this) {
+                completed[index] = true;
+                inFlight--;
+            }
+            enqueueCalls();
+        }
+    }
+}
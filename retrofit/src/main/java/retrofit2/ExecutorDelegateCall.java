@@ -1,7 +1,5 @@
 package retrofit2;
 
-import android.util.Log;
-
 import java.io.IOException;
 
 import okhttp3.MediaType;
@@ -17,12 +15,15 @@ import okio.Okio;
  * Created by Yangjing on 2016/5/6.
  */
 public class ExecutorDelegateCall<T> implements Call<T> {
-    private static final String TAG = "ExecutorDelegateCall";
-
     private final Call.Factory callFactory;
     private final RequestFactory requestFactory;
     private final Object[] args;
+    /** Null, or the primitive arguments of {@link MethodHandler#invoke(Object[], long[])}. */
+    private final long[] primitives;
     private final Converter<ResponseBody, T> responseConverter;
+    private final CallEventListener eventListener;
+    /** Null unless the method is annotated {@link retrofit2.http.CacheBody @CacheBody}. */
+    private final BodyCache bodyCache;
 
     private volatile boolean canceled;
 
@@ -33,68 +34,71 @@ public class ExecutorDelegateCall<T> implements Call<T> {
 
     public ExecutorDelegateCall(Call.Factory callFactory, RequestFactory requestFactory, Object[] args,
                                 Converter<ResponseBody, T> responseConverter) {
+        this(callFactory, requestFactory, args, responseConverter, CallEventListener.NONE);
+    }
+
+    public ExecutorDelegateCall(Call.Factory callFactory, RequestFactory requestFactory, Object[] args,
+                                Converter<ResponseBody, T> responseConverter,
+                                CallEventListener eventListener) {
+        this(callFactory, requestFactory, args, responseConverter, eventListener, null);
+    }
+
+    public ExecutorDelegateCall(Call.Factory callFactory, RequestFactory requestFactory, Object[] args,
+                                Converter<ResponseBody, T> responseConverter,
+                                CallEventListener eventListener, BodyCache bodyCache) {
+        this(callFactory, requestFactory, args, null, responseConverter, eventListener, bodyCache);
+    }
+
+    ExecutorDelegateCall(Call.Factory callFactory, RequestFactory requestFactory, Object[] args,
+                         long[] primitives, Converter<ResponseBody, T> responseConverter,
+                         CallEventListener eventListener, BodyCache bodyCache) {
         this.callFactory = callFactory;
         this.requestFactory = requestFactory;
         this.args = args;
+        this.primitives = primitives;
         this.responseConverter = responseConverter;
+        this.eventListener = eventListener;
+        this.bodyCache = bodyCache;
     }
 
     @SuppressWarnings("CloneDoesntCallSuperClone")
     // We are a final type & this saves clearing state.
     @Override
     public ExecutorDelegateCall<T> clone() {
-        Log.d(TAG, "clone");
-        return new ExecutorDelegateCall<>(callFactory, requestFactory, args, responseConverter);
+        return new ExecutorDelegateCall<>(callFactory, requestFactory, args, primitives,
+                responseConverter, eventListener, bodyCache);
     }
 
     @Override
     public Request request() {
-        Log.d(TAG, "request");
-        Call call = rawCall;
-        if (call != null) {
-            return call.request();
-        }
-        if (creationFailure != null) {
-            if (creationFailure instanceof IOException) {
-                throw new RuntimeException("Unable to create request.", creationFailure);
-            } else {
-                throw (RuntimeException) creationFailure;
-            }
-        }
         try {
-            return (rawCall = createRawCall()).request();
-        } catch (RuntimeException e) {
-            creationFailure = e;
-            throw e;
+            return getRawCall().request();
         } catch (IOException e) {
-            creationFailure = e;
             throw new RuntimeException("Unable to create request.", e);
         }
     }
 
     @Override
     public void enqueue(final Callback<T> callback) {
-        Log.d(TAG, "enqueue");
-        Call call;
-        Throwable failure;
-
         synchronized (this) {
             if (executed) throw new IllegalStateException("Already executed.");
             executed = true;
+        }
+        eventListener.callStart(this, now());
 
-            call = rawCall;
-            failure = creationFailure;
-            if (call == null && failure == null) {
-                try {
-                    call = rawCall = createRawCall();
-                } catch (Throwable t) {
-                    failure = creationFailure = t;
-                }
-            }
+        Call call;
+        try {
+            call = getRawCall();
+        } catch (Throwable t) {
+            eventListener.callFailed(this, t, now());
+            callback.onFailure(this, t);
+            return;
         }
 
-        if (failure != null) {
-            callback.onFailure(this, failure);
+        Response<T> cached = cachedResponse(call);
+        if (cached != null) {
+            eventListener.bodyConverted(this, now());
+            callback.onResponse(this, cached);
             return;
         }
 
@@ -120,6 +124,7 @@ public class ExecutorDelegateCall<T> implements Call<T> {
             }
 
             private void callFailure(Throwable e) {
+                eventListener.callFailed(ExecutorDelegateCall.this, e, now());
                 try {
                     callback.onFailure(ExecutorDelegateCall.this, e);
                 } catch (Throwable t) {
@@ -139,19 +144,48 @@ public class ExecutorDelegateCall<T> implements Call<T> {
 
     @Override
     public synchronized boolean isExecuted() {
-        Log.d(TAG, "isExecuted");
         return executed;
     }
 
     @Override
     public Response<T> execute() throws IOException {
-        Log.d(TAG, "execute");
-        Call call;
-
         synchronized (this) {
             if (executed) throw new IllegalStateException("Already executed.");
             executed = true;
+        }
+        eventListener.callStart(this, now());
 
+        try {
+            Call call = getRawCall();
+
+            Response<T> cached = cachedResponse(call);
+            if (cached != null) {
+                eventListener.bodyConverted(this, now());
+                return cached;
+            }
+
+            if (canceled) {
+                call.cancel();
+            }
+
+            return parseResponse(call.execute());
+        } catch (IOException | RuntimeException e) {
+            eventListener.callFailed(this, e, now());
+            throw e;
+        }
+    }
+
+
+    /**
+     * Returns the transport call, creating it on first use. Creating the request runs converters,
+     * which are user code, so it happens outside of the lock. That keeps a virtual thread from
+     * pinning its carrier thread, and other threads from waiting on this call, for its duration.
+     */
+    private Call getRawCall() throws IOException {
+        synchronized (this) {
+            if (rawCall != null) {
+                return rawCall;
+            }
             if (creationFailure != null) {
                 if (creationFailure instanceof IOException) {
                     throw (IOException) creationFailure;
@@ -159,28 +193,37 @@ public class ExecutorDelegateCall<T> implements Call<T> {
                     throw (RuntimeException) creationFailure;
                 }
             }
+        }
 
-            call = rawCall;
-            if (call == null) {
-                try {
-                    call = rawCall = createRawCall();
-                } catch (IOException | RuntimeException e) {
-                    creationFailure = e;
-                    throw e;
-                }
+        Call call;
+        try {
+            call = createRawCall();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                creationFailure = e;
             }
+            throw e;
         }
 
-        if (canceled) {
-            call.cancel();
+        synchronized (this) {
+            // A concurrent request() may have created one first. Both are equivalent.
+            if (rawCall == null) {
+                rawCall = call;
+            }
+            return rawCall;
         }
-
-        return parseResponse(call.execute());
     }
 
+    /** Returns the cached response to the request of {@code call}, or null to send it. */
+    private Response<T> cachedResponse(Call call) {
+        if (bodyCache == null || canceled) return null;
+        return bodyCache.get(requestFactory, call.request());
+    }
 
     private Call createRawCall() throws IOException {
-        Call call = callFactory.newCall(requestFactory.create(args));
+        Request request = requestFactory.create(args, primitives);
+        eventListener.requestBuilt(this, request, now());
+        Call call = callFactory.newCall(request);
         if (call == null) {
             throw new NullPointerException("Call.Factory returned null.");
         }
@@ -188,12 +231,18 @@ public class ExecutorDelegateCall<T> implements Call<T> {
     }
 
     Response<T> parseResponse(Response rawResponse) throws IOException {
+        eventListener.responseHeaders(this, rawResponse, now());
+        Response<T> response = convertResponse(rawResponse);
+        eventListener.bodyConverted(this, now());
+        return response;
+    }
+
+    private Response<T> convertResponse(Response rawResponse) throws IOException {
         ResponseBody rawBody = rawResponse.originalBody();
 
         // Remove the body's source (the only stateful object) so we can pass the response along.
-        rawResponse = rawResponse.newBuilder()
-                .body(new NoContentResponseBody(rawBody.contentType(), rawBody.contentLength()))
-                .build();
+        rawResponse = rawResponse.withOriginalBody(
+                new NoContentResponseBody(rawBody.contentType(), rawBody.contentLength()));
 
         int code = rawResponse.code();
         if (code < 200 || code >= 300) {
@@ -213,7 +262,11 @@ public class ExecutorDelegateCall<T> implements Call<T> {
         ExceptionCatchingRequestBody catchingBody = new ExceptionCatchingRequestBody(rawBody);
         try {
             T body = responseConverter.convert(catchingBody);
-            return Response.success(body, rawResponse);
+            Response<T> response = Response.success(body, rawResponse);
+            if (bodyCache != null) {
+                bodyCache.put(requestFactory, rawResponse.request(), response);
+            }
+            return response;
         } catch (RuntimeException e) {
             // If the underlying source threw an exception, propagate that rather than indicating it was
             // a runtime exception.
@@ -224,8 +277,8 @@ public class ExecutorDelegateCall<T> implements Call<T> {
 
     @Override
     public void cancel() {
-        Log.d(TAG, "cancel");
         canceled = true;
+        eventListener.callCanceled(this, now());
 
         Call call;
         synchronized (this) {
@@ -238,10 +291,14 @@ public class ExecutorDelegateCall<T> implements Call<T> {
 
     @Override
     public boolean isCanceled() {
-        Log.d(TAG, "isCanceled");
         return canceled;
     }
 
+    /** The current time for an event, or 0 when nothing is listening so that no clock is read. */
+    private long now() {
+        return eventListener != CallEventListener.NONE ? System.nanoTime() : 0L;
+    }
+
     static final class NoContentResponseBody extends ResponseBody {
         private final MediaType contentType;
         private final long contentLength;
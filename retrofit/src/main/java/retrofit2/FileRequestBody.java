@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+
+import static retrofit2.Utils.checkNotNull;
+
+/**
+ * A request body read from a range of a file, for example one chunk of a resumable upload, or from
+ * the whole of it like {@code RequestBody.create(MediaType, File)}. Its length is known without
+ * reading the file, so a multipart body containing it has a {@code Content-Length} too.
+ * <p>
+ * The bytes are copied through okio's segments, like any other body. The file is opened each time
+ * the body is written, which makes the body replayable.
+ */
+public final class FileRequestBody extends RequestBody {
+    private final MediaType contentType;
+    private final File file;
+    private final long position;
+    private final long byteCount;
+
+    private FileRequestBody(MediaType contentType, File file, long position, long byteCount) {
+        this.contentType = contentType;
+        this.file = file;
+        this.position = position;
+        this.byteCount = byteCount;
+    }
+
+    /** Returns a body of the whole of {@code file}, as long as it is now. */
+    public static FileRequestBody create(MediaType contentType, File file) {
+        checkNotNull(file, "file == null");
+        return new FileRequestBody(contentType, file, 0L, file.length());
+    }
+
+    /**
+     * Returns a body of the {@code byteCount} bytes of {@code file} starting at {@code position},
+     * for example one chunk of a resumable upload.
+     */
+    public static FileRequestBody create(MediaType contentType, File file, long position,
+                                         long byteCount) {
+        checkNotNull(file, "file == null");
+        if (position < 0) throw new IllegalArgumentException("position < 0: " + position);
+        if (byteCount < 0) throw new IllegalArgumentException("byteCount < 0: " + byteCount);
+        return new FileRequestBody(contentType, file, position, byteCount);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return byteCount;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(position);
+            // Throws EOFException if the file ends before byteCount bytes.
+            sink.write(Okio.source(in), byteCount);
+        } finally {
+            in.close();
+        }
+    }
+}
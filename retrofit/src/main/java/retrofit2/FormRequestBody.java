@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+/**
+ * The body of {@link retrofit2.http.FormUrlEncoded @FormUrlEncoded} methods. Each field is
+ * percent-encoded straight into one buffer as it is added, instead of into a string per name and
+ * value, so the length is known once it is built and writing it is a copy of that buffer. It
+ * encodes exactly like {@link okhttp3.FormBody}.
+ */
+final class FormRequestBody extends RequestBody {
+    private static final MediaType CONTENT_TYPE =
+            MediaType.parse("application/x-www-form-urlencoded");
+    private static final byte[] HEX_DIGITS =
+            {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+    /** The printable ASCII characters which a form name or value must encode. */
+    private static final boolean[] FORM_ENCODE_SET = new boolean[0x80];
+
+    static {
+        String encodeSet = " \"':;<=>@[]^`{}|/\\?#&!$(),~";
+        for (int i = 0; i < encodeSet.length(); i++) {
+            FORM_ENCODE_SET[encodeSet.charAt(i)] = true;
+        }
+    }
+
+    private final Buffer encoded;
+
+    FormRequestBody(Buffer encoded) {
+        this.encoded = encoded;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+        return encoded.size();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        // Shares the segments instead of copying bytes, and leaves this body intact to be replayed.
+        encoded.copyTo(sink.buffer(), 0, encoded.size());
+        sink.emitCompleteSegments();
+    }
+
+    static final class Builder {
+        private final Buffer encoded = new Buffer();
+
+        Builder add(String name, String value, boolean alreadyEncoded) {
+            if (encoded.size() > 0) encoded.writeByte('&');
+            canonicalize(encoded, name, alreadyEncoded);
+            encoded.writeByte('=');
+            canonicalize(encoded, value, alreadyEncoded);
+            return this;
+        }
+
+        FormRequestBody build() {
+            return new FormRequestBody(encoded);
+        }
+
+        /**
+         * Writes {@code input} to {@code out} as {@link okhttp3.HttpUrl} canonicalizes form fields:
+         * non-ASCII and reserved characters are percent-encoded, and so is {@code '%'} unless the
+         * input is already encoded.
+         */
+        private static void canonicalize(Buffer out, String input, boolean alreadyEncoded) {
+            int codePoint;
+            for (int i = 0, limit = input.length(); i < limit; i += Character.charCount(codePoint)) {
+                codePoint = input.codePointAt(i);
+                if (alreadyEncoded && (codePoint == '\t' || codePoint == '\n' || codePoint == '\f'
+                        || codePoint == '\r')) {
+                    // Skip this character.
+                } else if (codePoint == '+') {
+                    // Encode '+' as '%2B' since we permit ' ' to be encoded as either '+' or '%20'.
+                    if (alreadyEncoded) {
+                        out.writeByte('+');
+                    } else {
+                        percentEncode(out, '+');
+                    }
+                } else if (codePoint < 0x20 || codePoint >= 0x7f || FORM_ENCODE_SET[codePoint]
+                        || (codePoint == '%' && !alreadyEncoded)) {
+                    percentEncodeUtf8(out, codePoint);
+                } else {
+                    out.writeByte(codePoint);
+                }
+            }
+        }
+
+        /** Percent-encodes each byte of the UTF-8 encoding of {@code codePoint}. */
+        private static void percentEncodeUtf8(Buffer out, int codePoint) {
+            if (codePoint < 0x80) {
+                percentEncode(out, codePoint);
+            } else if (codePoint < 0x800) {
+                percentEncode(out, 0xc0 | codePoint >> 6);
+                percentEncode(out, 0x80 | codePoint & 0x3f);
+            } else if (codePoint < 0x10000) {
+                if (codePoint >= 0xd800 && codePoint <= 0xdfff) {
+                    // An unpaired surrogate, rejected like Okio's writeUtf8CodePoint() does.
+                    throw new IllegalArgumentException(
+                            "Unexpected code point: " + Integer.toHexString(codePoint));
+                }
+                percentEncode(out, 0xe0 | codePoint >> 12);
+                percentEncode(out, 0x80 | codePoint >> 6 & 0x3f);
+                percentEncode(out, 0x80 | codePoint & 0x3f);
+            } else {
+                percentEncode(out, 0xf0 | codePoint >> 18);
+                percentEncode(out, 0x80 | codePoint >> 12 & 0x3f);
+                percentEncode(out, 0x80 | codePoint >> 6 & 0x3f);
+                percentEncode(out, 0x80 | codePoint & 0x3f);
+            }
+        }
+
+        private static void percentEncode(Buffer out, int b) {
+            out.writeByte('%');
+            out.writeByte(HEX_DIGITS[(b >> 4) & 0xf]);
+            out.writeByte(HEX_DIGITS[b & 0xf]);
+        }
+    }
+}
@@ -21,8 +21,19 @@ import java.lang.reflect.Type;
 
 import okhttp3.ResponseBody;
 
-final class MethodHandler {
+import static retrofit2.Utils.checkNotNull;
+
+/**
+ * A parsed service method: its request factory, call adapter and response converter. Handlers are
+ * created once per method by {@link Retrofit} and shared by every invocation. Generated service
+ * implementations hold them in fields and call {@link #invoke} directly instead of going through a
+ * {@link java.lang.reflect.Proxy}.
+ */
+public final class MethodHandler {
     static MethodHandler create(Retrofit retrofit, Method method) {
+        MethodTiming timing = new MethodTiming(method);
+
+        long start = System.nanoTime();
         CallAdapter<?> callAdapter = createCallAdapter(method, retrofit);
         Type responseType = callAdapter.responseType();
         if (responseType == Response.class || responseType == okhttp3.Response.class) {
@@ -30,11 +41,20 @@ final class MethodHandler {
                     + Types.getRawType(responseType).getName()
                     + "' is not a valid response body type. Did you mean ResponseBody?");
         }
+        long callAdapterEnd = System.nanoTime();
+        timing.callAdapterNanos = callAdapterEnd - start;
+
         Converter<ResponseBody, ?> responseConverter =
                 createResponseConverter(method, retrofit, responseType);
-        RequestFactory requestFactory = RequestFactoryParser.parse(method, responseType, retrofit);
-        return new MethodHandler(retrofit.callFactory(), requestFactory, callAdapter,
-                responseConverter);
+        timing.responseConverterNanos = System.nanoTime() - callAdapterEnd;
+
+        RequestFactory requestFactory =
+                RequestFactoryParser.parse(method, responseType, retrofit, timing);
+        Call.Factory callFactory =
+                requestFactory.isCoalesced() ? retrofit.singleFlight() : retrofit.callFactory();
+        BodyCache bodyCache = requestFactory.isBodyCached() ? retrofit.bodyCache() : null;
+        return new MethodHandler(callFactory, requestFactory, callAdapter, responseConverter,
+                retrofit.callEventListener(), bodyCache, timing);
     }
 
     private static CallAdapter<?> createCallAdapter(Method method, Retrofit retrofit) {
@@ -68,16 +88,45 @@ final class MethodHandler {
     private final RequestFactory requestFactory;
     private final CallAdapter<?> callAdapter;
     private final Converter<ResponseBody, ?> responseConverter;
+    private final CallEventListener eventListener;
+    private final BodyCache bodyCache;
+    final MethodTiming timing;
 
     private MethodHandler(Call.Factory callFactory, RequestFactory requestFactory,
-                          CallAdapter<?> callAdapter, Converter<ResponseBody, ?> responseConverter) {
+                          CallAdapter<?> callAdapter, Converter<ResponseBody, ?> responseConverter,
+                          CallEventListener eventListener, BodyCache bodyCache,
+                          MethodTiming timing) {
         this.callFactory = callFactory;
         this.requestFactory = requestFactory;
         this.callAdapter = callAdapter;
         this.responseConverter = responseConverter;
+        this.eventListener = eventListener;
+        this.bodyCache = bodyCache;
+        this.timing = timing;
+    }
+
+    /**
+     * Adapt a new call of this method with {@code args}, the method's arguments in declaration
+     * order, or null if it takes none.
+     */
+    public Object invoke(Object... args) {
+        return callAdapter.adapt(new ExecutorDelegateCall<>(callFactory, requestFactory, args,
+                responseConverter, eventListener, bodyCache));
     }
 
-    Object invoke(Object... args) {
-        return callAdapter.adapt(new ExecutorDelegateCall<>(callFactory, requestFactory, args, responseConverter));
+    /**
+     * Like {@link #invoke(Object...)}, but the values of primitive parameters are in {@code
+     * primitives}, at their parameter index, so that they are never boxed. Integral @Path,
+     * @Query and @Header values are then formatted straight from the long. {@code args} holds
+     * the other arguments, and anything at the indexes of primitive parameters.
+     * <p>
+     * A {@code boolean} is carried as 1 or 0, a {@code float} or {@code double} as the bits of
+     * {@link Float#floatToRawIntBits} or {@link Double#doubleToRawLongBits}, and any other
+     * primitive as its value.
+     */
+    public Object invoke(Object[] args, long[] primitives) {
+        return callAdapter.adapt(new ExecutorDelegateCall<>(callFactory, requestFactory, args,
+                checkNotNull(primitives, "primitives == null"), responseConverter, eventListener,
+                bodyCache));
     }
 }
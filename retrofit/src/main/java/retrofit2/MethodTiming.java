@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.lang.reflect.Method;
+
+/**
+ * How long it took to create the handler of a service method, broken down by phase. Use this to
+ * find which methods, annotations or converter factories dominate startup.
+ *
+ * @see Retrofit#warmUp
+ */
+public final class MethodTiming {
+    private final Method method;
+    long callAdapterNanos;
+    long responseConverterNanos;
+    long methodAnnotationsNanos;
+    long parametersNanos;
+
+    MethodTiming(Method method) {
+        this.method = method;
+    }
+
+    public Method method() {
+        return method;
+    }
+
+    /** Time spent finding the {@link CallAdapter} for the return type. */
+    public long callAdapterNanos() {
+        return callAdapterNanos;
+    }
+
+    /** Time spent finding the response body {@link Converter}. */
+    public long responseConverterNanos() {
+        return responseConverterNanos;
+    }
+
+    /** Time spent parsing the HTTP method, path and {@code @Headers} annotations. */
+    public long methodAnnotationsNanos() {
+        return methodAnnotationsNanos;
+    }
+
+    /** Time spent parsing parameter annotations and finding their converters. */
+    public long parametersNanos() {
+        return parametersNanos;
+    }
+
+    public long totalNanos() {
+        return callAdapterNanos + responseConverterNanos + methodAnnotationsNanos + parametersNanos;
+    }
+
+    @Override
+    public String toString() {
+        return method.getDeclaringClass().getSimpleName()
+                + "."
+                + method.getName()
+                + ": total="
+                + totalNanos()
+                + "ns, callAdapter="
+                + callAdapterNanos
+                + "ns, responseConverter="
+                + responseConverterNanos
+                + "ns, methodAnnotations="
+                + methodAnnotationsNanos
+                + "ns, parameters="
+                + parametersNanos
+                + "ns";
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+
+/**
+ * The {@code multipart/form-data} body of {@link retrofit2.http.Multipart @Multipart} methods.
+ * The {@code Content-Disposition} and {@code Content-Transfer-Encoding} lines of each part are
+ * encoded once, when its method is parsed, instead of for every request. Its {@link
+ * #contentLength()} is added up from the sizes of those lines and of the part bodies, so only
+ * {@link #writeTo} serializes it.
+ */
+final class MultipartRequestBody extends RequestBody {
+    private static final MediaType FORM = MediaType.parse("multipart/form-data");
+    private static final ByteString CRLF = ByteString.encodeUtf8("\r\n");
+    private static final ByteString DASHDASH = ByteString.encodeUtf8("--");
+    private static final ByteString CONTENT_TYPE = ByteString.encodeUtf8("Content-Type: ");
+    private static final ByteString CONTENT_LENGTH = ByteString.encodeUtf8("Content-Length: ");
+
+    private final ByteString boundary;
+    private final MediaType contentType;
+    private final List<ByteString> partHeaders;
+    private final List<RequestBody> partBodies;
+    /** The content type and length lines of each part, which depend on its body. Lazily set. */
+    private ByteString[] bodyHeaders;
+    private long contentLength = -1L;
+
+    MultipartRequestBody(List<ByteString> partHeaders, List<RequestBody> partBodies) {
+        this.boundary = ByteString.encodeUtf8(UUID.randomUUID().toString());
+        this.contentType = MediaType.parse(FORM + "; boundary=" + boundary.utf8());
+        this.partHeaders = partHeaders;
+        this.partBodies = partBodies;
+    }
+
+    /**
+     * Encodes the header lines of a form-data part named {@code name}, each ending in CRLF.
+     *
+     * @throws IllegalArgumentException if the name or encoding contain characters which are not
+     *                                  allowed in a header value.
+     */
+    static ByteString formDataHeaders(String name, String transferEncoding) {
+        checkHeaderValue(name);
+        checkHeaderValue(transferEncoding);
+        return new Buffer()
+                .writeUtf8("Content-Disposition: form-data; name=\"")
+                .writeUtf8(name)
+                .writeUtf8("\"\r\nContent-Transfer-Encoding: ")
+                .writeUtf8(transferEncoding)
+                .write(CRLF)
+                .readByteString();
+    }
+
+    /** The same check as {@link okhttp3.Headers#of}, which these lines used to be built with. */
+    private static void checkHeaderValue(String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if ((c <= '\u001f' && c != '\t') || c >= '\u007f') {
+                throw new IllegalArgumentException(String.format(
+                        "Unexpected char %#04x at %d in header value: %s", (int) c, i, value));
+            }
+        }
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        long result = contentLength;
+        if (result != -1L) return result;
+
+        ByteString[] bodyHeaders = bodyHeaders();
+        long byteCount = 0L;
+        for (int p = 0, partCount = partBodies.size(); p < partCount; p++) {
+            long bodyLength = partBodies.get(p).contentLength();
+            if (bodyLength == -1L) {
+                // The length of this part is only known once it is written.
+                return -1L;
+            }
+            byteCount += DASHDASH.size() + boundary.size() + CRLF.size()
+                    + partHeaders.get(p).size()
+                    + bodyHeaders[p].size()
+                    + CRLF.size()
+                    + bodyLength
+                    + CRLF.size();
+        }
+        byteCount += DASHDASH.size() + boundary.size() + DASHDASH.size() + CRLF.size();
+        return contentLength = byteCount;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        ByteString[] bodyHeaders = bodyHeaders();
+        for (int p = 0, partCount = partBodies.size(); p < partCount; p++) {
+            sink.write(DASHDASH)
+                    .write(boundary)
+                    .write(CRLF)
+                    .write(partHeaders.get(p))
+                    .write(bodyHeaders[p])
+                    .write(CRLF);
+            partBodies.get(p).writeTo(sink);
+            sink.write(CRLF);
+        }
+        sink.write(DASHDASH)
+                .write(boundary)
+                .write(DASHDASH)
+                .write(CRLF);
+    }
+
+    private ByteString[] bodyHeaders() throws IOException {
+        ByteString[] result = bodyHeaders;
+        if (result != null) return result;
+
+        result = new ByteString[partBodies.size()];
+        Buffer buffer = new Buffer();
+        for (int p = 0; p < result.length; p++) {
+            RequestBody body = partBodies.get(p);
+            MediaType contentType = body.contentType();
+            if (contentType != null) {
+                buffer.write(CONTENT_TYPE).writeUtf8(contentType.toString()).write(CRLF);
+            }
+            long contentLength = body.contentLength();
+            if (contentLength != -1L) {
+                buffer.write(CONTENT_LENGTH).writeDecimalLong(contentLength).write(CRLF);
+            }
+            result[p] = buffer.readByteString();
+        }
+        return bodyHeaders = result;
+    }
+
+    static final class Builder {
+        private final List<ByteString> partHeaders = new ArrayList<>();
+        private final List<RequestBody> partBodies = new ArrayList<>();
+
+        /** Adds a part whose header lines were encoded by {@link #formDataHeaders}. */
+        Builder addPart(ByteString headers, RequestBody body) {
+            partHeaders.add(headers);
+            partBodies.add(body);
+            return this;
+        }
+
+        MultipartRequestBody build() {
+            if (partBodies.isEmpty()) {
+                throw new IllegalStateException("Multipart body must have at least one part.");
+            }
+            return new MultipartRequestBody(partHeaders, partBodies);
+        }
+    }
+}
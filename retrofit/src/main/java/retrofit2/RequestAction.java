@@ -18,24 +18,55 @@ package retrofit2;
 import android.net.Uri;
 
 import java.io.IOException;
-import java.lang.reflect.Array;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
-import okhttp3.Headers;
 import okhttp3.RequestBody;
+import okio.ByteString;
 
 import static retrofit2.Utils.checkNotNull;
 
 abstract class RequestAction<T> {
     abstract void perform(RequestBuilder builder, T value) throws IOException;
 
+    /**
+     * Perform with the value of a parameter of the primitive {@code type}, carried in a long as
+     * described by {@link MethodHandler#invoke(Object[], long[])}. Actions which format primitives
+     * override this so the value is never boxed.
+     */
+    @SuppressWarnings("unchecked") // The parser created this action for a parameter of type.
+    void performPrimitive(RequestBuilder builder, Class<?> type, long value) throws IOException {
+        perform(builder, (T) box(type, value));
+    }
+
+    static Object box(Class<?> type, long value) {
+        if (type == int.class) return (int) value;
+        if (type == long.class) return value;
+        if (type == boolean.class) return value != 0;
+        if (type == short.class) return (short) value;
+        if (type == byte.class) return (byte) value;
+        if (type == char.class) return (char) value;
+        if (type == double.class) return Double.longBitsToDouble(value);
+        if (type == float.class) return Float.intBitsToFloat((int) value);
+        throw new IllegalArgumentException("Not a primitive type: " + type);
+    }
+
     final RequestAction<Iterable<T>> iterable() {
         return new RequestAction<Iterable<T>>() {
             @Override
             void perform(RequestBuilder builder, Iterable<T> values) throws IOException {
                 if (values == null) return; // Skip null values.
 
+                if (values instanceof List && values instanceof RandomAccess) {
+                    // Index instead of allocating an iterator.
+                    List<T> list = (List<T>) values;
+                    for (int i = 0, size = list.size(); i < size; i++) {
+                        RequestAction.this.perform(builder, list.get(i));
+                    }
+                    return;
+                }
                 for (T value : values) {
                     RequestAction.this.perform(builder, value);
                 }
@@ -43,20 +74,76 @@ abstract class RequestAction<T> {
         };
     }
 
-    final RequestAction<Object> array() {
+    /**
+     * Performs this action for each element of an array whose elements are {@code componentType}.
+     * The elements are read by a loop for that type instead of {@code java.lang.reflect.Array.get}.
+     */
+    final RequestAction<Object> array(Class<?> componentType) {
+        if (componentType.isPrimitive()) {
+            return new PrimitiveArray<>(this);
+        }
         return new RequestAction<Object>() {
             @Override
             void perform(RequestBuilder builder, Object values) throws IOException {
                 if (values == null) return; // Skip null values.
 
-                for (int i = 0, size = Array.getLength(values); i < size; i++) {
+                for (Object value : (Object[]) values) {
                     //noinspection unchecked
-                    RequestAction.this.perform(builder, (T) Array.get(values, i));
+                    RequestAction.this.perform(builder, (T) value);
                 }
             }
         };
     }
 
+    /** Performs {@code element} for each value of an {@code int[]}, {@code long[]} and so on. */
+    static final class PrimitiveArray<T> extends RequestAction<Object> {
+        private final RequestAction<T> element;
+
+        PrimitiveArray(RequestAction<T> element) {
+            this.element = element;
+        }
+
+        @SuppressWarnings("unchecked") // T is the box of the array's component type.
+        @Override
+        void perform(RequestBuilder builder, Object values) throws IOException {
+            if (values == null) return; // Skip null values.
+
+            if (values instanceof int[]) {
+                for (int value : (int[]) values) {
+                    element.perform(builder, (T) (Integer) value);
+                }
+            } else if (values instanceof long[]) {
+                for (long value : (long[]) values) {
+                    element.perform(builder, (T) (Long) value);
+                }
+            } else if (values instanceof boolean[]) {
+                for (boolean value : (boolean[]) values) {
+                    element.perform(builder, (T) (Boolean) value);
+                }
+            } else if (values instanceof short[]) {
+                for (short value : (short[]) values) {
+                    element.perform(builder, (T) (Short) value);
+                }
+            } else if (values instanceof byte[]) {
+                for (byte value : (byte[]) values) {
+                    element.perform(builder, (T) (Byte) value);
+                }
+            } else if (values instanceof char[]) {
+                for (char value : (char[]) values) {
+                    element.perform(builder, (T) (Character) value);
+                }
+            } else if (values instanceof double[]) {
+                for (double value : (double[]) values) {
+                    element.perform(builder, (T) (Double) value);
+                }
+            } else {
+                for (float value : (float[]) values) {
+                    element.perform(builder, (T) (Float) value);
+                }
+            }
+        }
+    }
+
     static final class StringUrl extends RequestAction<String> {
         @Override
         void perform(RequestBuilder builder, String value) {
@@ -96,11 +183,13 @@ abstract class RequestAction<T> {
 
     static final class Path<T> extends RequestAction<T> {
         private final String name;
+        private final int index;
         private final Converter<T, String> valueConverter;
         private final boolean encoded;
 
-        Path(String name, Converter<T, String> valueConverter, boolean encoded) {
+        Path(String name, int index, Converter<T, String> valueConverter, boolean encoded) {
             this.name = checkNotNull(name, "name == null");
+            this.index = index;
             this.valueConverter = valueConverter;
             this.encoded = encoded;
         }
@@ -111,7 +200,7 @@ abstract class RequestAction<T> {
                 throw new IllegalArgumentException(
                         "Path parameter \"" + name + "\" value must not be null.");
             }
-            builder.addPathParam(name, valueConverter.convert(value), encoded);
+            builder.addPathParam(index, valueConverter.convert(value), encoded);
         }
     }
 
@@ -133,6 +222,113 @@ abstract class RequestAction<T> {
         }
     }
 
+    /**
+     * Formats the values of {@code int}, {@code long}, {@code short}, {@code byte} and {@code
+     * boolean} parameters, and their boxes, which have no converter other than the built-in {@code
+     * toString()}. Small non-negative numbers, such as page sizes and offsets, reuse the same string
+     * every time. The text is only digits, {@code '-'}, {@code "true"} or {@code "false"}, none of
+     * which is ever percent-encoded.
+     */
+    static String primitiveToString(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "true" : "false";
+        }
+        return numberToString(((Number) value).longValue());
+    }
+
+    /** Like {@link #primitiveToString(Object)}, for an integral or boolean carried in a long. */
+    static String primitiveToString(Class<?> type, long value) {
+        if (type == boolean.class) {
+            return value != 0 ? "true" : "false";
+        }
+        return numberToString(value);
+    }
+
+    private static String numberToString(long number) {
+        if (number >= 0 && number < SMALL_NUMBERS.length) {
+            int index = (int) number;
+            String result = SMALL_NUMBERS[index];
+            if (result == null) {
+                // Racy but benign: strings are immutable, so a lost write only costs a duplicate.
+                SMALL_NUMBERS[index] = result = Integer.toString(index);
+            }
+            return result;
+        }
+        return Long.toString(number);
+    }
+
+    private static final String[] SMALL_NUMBERS = new String[1024];
+
+    /** A {@link Header} of a primitive value, formatted by {@link #primitiveToString}. */
+    static final class PrimitiveHeader extends RequestAction<Object> {
+        private final String name;
+
+        PrimitiveHeader(String name) {
+            this.name = checkNotNull(name, "name == null");
+        }
+
+        @Override
+        void perform(RequestBuilder builder, Object value) {
+            if (value == null) return; // Skip null values.
+            builder.addHeader(name, primitiveToString(value));
+        }
+
+        @Override
+        void performPrimitive(RequestBuilder builder, Class<?> type, long value) {
+            builder.addHeader(name, primitiveToString(type, value));
+        }
+    }
+
+    /**
+     * A {@link Path} of a primitive value, formatted by {@link #primitiveToString}. The value goes
+     * into the URL as is, without scanning it for characters to encode.
+     */
+    static final class PrimitivePath extends RequestAction<Object> {
+        private final String name;
+        private final int index;
+
+        PrimitivePath(String name, int index) {
+            this.name = checkNotNull(name, "name == null");
+            this.index = index;
+        }
+
+        @Override
+        void perform(RequestBuilder builder, Object value) {
+            if (value == null) {
+                throw new IllegalArgumentException(
+                        "Path parameter \"" + name + "\" value must not be null.");
+            }
+            builder.addCanonicalPathParam(index, primitiveToString(value));
+        }
+
+        @Override
+        void performPrimitive(RequestBuilder builder, Class<?> type, long value) {
+            builder.addCanonicalPathParam(index, primitiveToString(type, value));
+        }
+    }
+
+    /** A {@link Query} of a primitive value, formatted by {@link #primitiveToString}. */
+    static final class PrimitiveQuery extends RequestAction<Object> {
+        private final String name;
+        private final boolean encoded;
+
+        PrimitiveQuery(String name, boolean encoded) {
+            this.name = checkNotNull(name, "name == null");
+            this.encoded = encoded;
+        }
+
+        @Override
+        void perform(RequestBuilder builder, Object value) {
+            if (value == null) return; // Skip null values.
+            builder.addQueryParam(name, primitiveToString(value), encoded);
+        }
+
+        @Override
+        void performPrimitive(RequestBuilder builder, Class<?> type, long value) {
+            builder.addQueryParam(name, primitiveToString(type, value), encoded);
+        }
+    }
+
     static final class QueryMap<T> extends RequestAction<Map<String, T>> {
         private final Converter<T, String> valueConverter;
         private final boolean encoded;
@@ -204,10 +400,11 @@ abstract class RequestAction<T> {
     }
 
     static final class Part<T> extends RequestAction<T> {
-        private final Headers headers;
+        /** Encoded by {@link MultipartRequestBody#formDataHeaders} when the method was parsed. */
+        private final ByteString headers;
         private final Converter<T, RequestBody> converter;
 
-        Part(Headers headers, Converter<T, RequestBody> converter) {
+        Part(ByteString headers, Converter<T, RequestBody> converter) {
             this.headers = headers;
             this.converter = converter;
         }
@@ -249,9 +446,8 @@ abstract class RequestAction<T> {
                     continue; // Skip null values.
                 }
 
-                Headers headers = Headers.of(
-                        "Content-Disposition", "form-data; name=\"" + entryKey + "\"",
-                        "Content-Transfer-Encoding", transferEncoding);
+                ByteString headers =
+                        MultipartRequestBody.formDataHeaders(entryKey, transferEncoding);
 
                 builder.addPart(headers, valueConverter.convert(entryValue));
             }
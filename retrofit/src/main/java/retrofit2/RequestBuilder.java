@@ -17,24 +17,26 @@ package retrofit2;
 
 import java.io.IOException;
 
-import okhttp3.FormBody;
-import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
-import okhttp3.MultipartBody;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okio.Buffer;
 import okio.BufferedSink;
+import okio.ByteString;
 
 final class RequestBuilder {
     private static final char[] HEX_DIGITS =
             {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
     private static final String PATH_SEGMENT_ALWAYS_ENCODE_SET = " \"<>^`{}|\\?#";
+    /** Sent by body methods without one. Its bytes never change so it is shared by every call. */
+    private static final RequestBody EMPTY_BODY = RequestBody.create(null, new byte[0]);
 
     private final String method;
 
     private final HttpUrl baseUrl;
+    private final UrlTemplate urlTemplate;
+    private final String[] pathValues;
     private String relativeUrl;
     private HttpUrl.Builder urlBuilder;
 
@@ -42,31 +44,28 @@ final class RequestBuilder {
     private MediaType contentType;
 
     private final boolean hasBody;
-    private MultipartBody.Builder multipartBuilder;
-    private FormBody.Builder formBuilder;
+    private final boolean isFormEncoded;
+    private final boolean isMultipart;
+    private MultipartRequestBody.Builder multipartBuilder;
+    private FormRequestBody.Builder formBuilder;
     private RequestBody body;
 
-    RequestBuilder(String method, HttpUrl baseUrl, String relativeUrl, Headers headers,
+    RequestBuilder(String method, HttpUrl baseUrl, UrlTemplate urlTemplate, Request headersTemplate,
                    MediaType contentType, boolean hasBody, boolean isFormEncoded, boolean isMultipart) {
         this.method = method;
         this.baseUrl = baseUrl;
-        this.relativeUrl = relativeUrl;
-        this.requestBuilder = new Request.Builder();
+        this.urlTemplate = urlTemplate;
+        this.pathValues = urlTemplate != null && urlTemplate.variableCount() > 0
+                ? new String[urlTemplate.variableCount()]
+                : null;
+        // Clear the template's tag: each request is its own tag.
+        this.requestBuilder = headersTemplate != null
+                ? headersTemplate.newBuilder().tag(null)
+                : new Request.Builder();
         this.contentType = contentType;
         this.hasBody = hasBody;
-
-        if (headers != null) {
-            requestBuilder.headers(headers);
-        }
-
-        if (isFormEncoded) {
-            // Will be set to 'body' in 'build'.
-            formBuilder = new FormBody.Builder();
-        } else if (isMultipart) {
-            // Will be set to 'body' in 'build'.
-            multipartBuilder = new MultipartBody.Builder();
-            multipartBuilder.setType(MultipartBody.FORM);
-        }
+        this.isFormEncoded = isFormEncoded;
+        this.isMultipart = isMultipart;
     }
 
     void setRelativeUrl(String relativeUrl) {
@@ -81,12 +80,30 @@ final class RequestBuilder {
         }
     }
 
-    void addPathParam(String name, String value, boolean encoded) {
-        if (relativeUrl == null) {
-            // The relative URL is cleared when the first query parameter is set.
+    /** Binds the variable at {@code index} of the URL template. */
+    void addPathParam(int index, String value, boolean encoded) {
+        if (urlBuilder != null) {
+            // The URL is fixed when the first query parameter is set.
+            throw new AssertionError();
+        }
+        pathValues[index] = canonicalizeForPath(value, encoded);
+    }
+
+    /** Binds the variable at {@code index} to {@code value}, which has nothing to encode. */
+    void addCanonicalPathParam(int index, String value) {
+        if (urlBuilder != null) {
+            // The URL is fixed when the first query parameter is set.
             throw new AssertionError();
         }
-        relativeUrl = relativeUrl.replace("{" + name + "}", canonicalizeForPath(value, encoded));
+        pathValues[index] = value;
+    }
+
+    /** Combines the base URL with the {@code @Url} value or the filled-in URL template. */
+    private HttpUrl.Builder newUrlBuilder() {
+        if (relativeUrl != null) {
+            return baseUrl.newBuilder(relativeUrl);
+        }
+        return urlTemplate.newUrlBuilder(baseUrl, pathValues);
     }
 
     private static String canonicalizeForPath(String input, boolean alreadyEncoded) {
@@ -139,10 +156,9 @@ final class RequestBuilder {
     }
 
     void addQueryParam(String name, String value, boolean encoded) {
-        if (relativeUrl != null) {
+        if (urlBuilder == null) {
             // Do a one-time combination of the built relative URL and the base URL.
-            urlBuilder = baseUrl.newBuilder(relativeUrl);
-            relativeUrl = null;
+            urlBuilder = newUrlBuilder();
         }
 
         if (encoded) {
@@ -153,14 +169,19 @@ final class RequestBuilder {
     }
 
     void addFormField(String name, String value, boolean encoded) {
-        if (encoded) {
-            formBuilder.addEncoded(name, value);
-        } else {
-            formBuilder.add(name, value);
+        if (formBuilder == null) {
+            // Will be set to 'body' in 'build'.
+            formBuilder = new FormRequestBody.Builder();
         }
+        formBuilder.add(name, value, encoded);
     }
 
-    void addPart(Headers headers, RequestBody body) {
+    /** Adds a part whose header lines are from {@link MultipartRequestBody#formDataHeaders}. */
+    void addPart(ByteString headers, RequestBody body) {
+        if (multipartBuilder == null) {
+            // Will be set to 'body' in 'build'.
+            multipartBuilder = new MultipartRequestBody.Builder();
+        }
         multipartBuilder.addPart(headers, body);
     }
 
@@ -173,21 +194,25 @@ final class RequestBuilder {
         HttpUrl.Builder urlBuilder = this.urlBuilder;
         if (urlBuilder != null) {
             url = urlBuilder.build();
-        } else {
+        } else if (relativeUrl != null) {
             // No query parameters triggered builder creation, just combine the relative URL and base URL.
             url = baseUrl.resolve(relativeUrl);
+        } else {
+            url = urlTemplate.newUrlBuilder(baseUrl, pathValues).build();
         }
 
         RequestBody body = this.body;
         if (body == null) {
-            // Try to pull from one of the builders.
-            if (formBuilder != null) {
-                body = formBuilder.build();
-            } else if (multipartBuilder != null) {
-                body = multipartBuilder.build();
+            // Try to pull from one of the builders, which are only created once a value is added.
+            if (isFormEncoded) {
+                body = (formBuilder != null ? formBuilder : new FormRequestBody.Builder()).build();
+            } else if (isMultipart) {
+                // Without a part this fails: a multipart body must have at least one.
+                body = (multipartBuilder != null ? multipartBuilder : new MultipartRequestBody.Builder())
+                        .build();
             } else if (hasBody) {
-                // Body is absent, make an empty body.
-                body = RequestBody.create(null, new byte[0]);
+                // Body is absent, use an empty body.
+                body = EMPTY_BODY;
             }
         }
 
@@ -18,37 +18,78 @@ package retrofit2;
 import java.io.IOException;
 
 import okhttp3.Headers;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.Request;
 
+/**
+ * Everything about a service method's request that does not depend on its arguments, parsed once.
+ * Each call only converts its arguments and fills them into the template.
+ */
 final class RequestFactory {
+    /** Never sent: every request replaces it. {@link Request.Builder#build} requires a URL. */
+    private static final HttpUrl PLACEHOLDER_URL = HttpUrl.parse("http://localhost/");
+
     private final String method;
     private final BaseUrl baseUrl;
-    private final String relativeUrl;
-    private final Headers headers;
+    private final UrlTemplate urlTemplate;
+    /**
+     * A request carrying only the static {@code @Headers}, or null if there are none. Each call's
+     * builder is copied from it instead of creating an empty header list and replacing it.
+     */
+    private final Request headersTemplate;
     private final MediaType contentType;
     private final boolean hasBody;
     private final boolean isFormEncoded;
     private final boolean isMultipart;
     private final RequestAction[] requestActions;
+    /** The erased type of each parameter, to tell which ones {@link #create} may get unboxed. */
+    private final Class<?>[] parameterTypes;
+    private final boolean isCoalesced;
+    private final boolean isBodyCached;
 
-    RequestFactory(String method, BaseUrl baseUrl, String relativeUrl, Headers headers,
+    RequestFactory(String method, BaseUrl baseUrl, UrlTemplate urlTemplate, Headers headers,
                    MediaType contentType, boolean hasBody, boolean isFormEncoded, boolean isMultipart,
-                   RequestAction[] requestActions) {
+                   RequestAction[] requestActions, Class<?>[] parameterTypes, boolean isCoalesced,
+                   boolean isBodyCached) {
         this.method = method;
         this.baseUrl = baseUrl;
-        this.relativeUrl = relativeUrl;
-        this.headers = headers;
+        this.urlTemplate = urlTemplate;
+        this.headersTemplate = headers != null && headers.size() > 0
+                ? new Request.Builder().url(PLACEHOLDER_URL).headers(headers).build()
+                : null;
         this.contentType = contentType;
         this.hasBody = hasBody;
         this.isFormEncoded = isFormEncoded;
         this.isMultipart = isMultipart;
         this.requestActions = requestActions;
+        this.parameterTypes = parameterTypes;
+        this.isCoalesced = isCoalesced;
+        this.isBodyCached = isBodyCached;
+    }
+
+    /** True if concurrent identical requests of this method share one exchange. */
+    boolean isCoalesced() {
+        return isCoalesced;
+    }
+
+    /** True if converted bodies of this method are kept in the {@link BodyCache}. */
+    boolean isBodyCached() {
+        return isBodyCached;
     }
 
     Request create(Object... args) throws IOException {
+        return create(args, null);
+    }
+
+    /**
+     * Create the request for {@code args}. If {@code primitives} is not null, the values of the
+     * primitive parameters are taken from it instead, as described by {@link
+     * MethodHandler#invoke(Object[], long[])}.
+     */
+    Request create(Object[] args, long[] primitives) throws IOException {
         RequestBuilder requestBuilder =
-                new RequestBuilder(method, baseUrl.url(), relativeUrl, headers, contentType, hasBody,
+                new RequestBuilder(method, baseUrl.url(), urlTemplate, headersTemplate, contentType, hasBody,
                         isFormEncoded, isMultipart);
 
         if (args != null) {
@@ -60,8 +101,20 @@ final class RequestFactory {
                         + actions.length
                         + ")");
             }
+            if (primitives != null && primitives.length != args.length) {
+                throw new IllegalArgumentException("Primitive count ("
+                        + primitives.length
+                        + ") doesn't match argument count ("
+                        + args.length
+                        + ")");
+            }
             for (int i = 0, count = args.length; i < count; i++) {
-                actions[i].perform(requestBuilder, args[i]);
+                Class<?> type = parameterTypes[i];
+                if (primitives != null && type.isPrimitive()) {
+                    actions[i].performPrimitive(requestBuilder, type, primitives[i]);
+                } else {
+                    actions[i].perform(requestBuilder, args[i]);
+                }
             }
         }
 
@@ -20,15 +20,18 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.net.URI;
-import java.util.LinkedHashSet;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.ByteString;
 import retrofit2.http.Body;
+import retrofit2.http.CacheBody;
+import retrofit2.http.Coalesce;
 import retrofit2.http.DELETE;
 import retrofit2.http.Field;
 import retrofit2.http.FieldMap;
@@ -48,6 +51,7 @@ import retrofit2.http.PartMap;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 import retrofit2.http.QueryMap;
+import retrofit2.http.Streaming;
 import retrofit2.http.Url;
 
 import static retrofit2.Utils.methodError;
@@ -56,14 +60,24 @@ final class RequestFactoryParser {
     // Upper and lower characters, digits, underscores, and hyphens, starting with a character.
     private static final String PARAM = "[a-zA-Z][a-zA-Z0-9_-]*";
     private static final Pattern PARAM_NAME_REGEX = Pattern.compile(PARAM);
-    private static final Pattern PARAM_URL_REGEX = Pattern.compile("\\{(" + PARAM + ")\\}");
+    static final Pattern PARAM_URL_REGEX = Pattern.compile("\\{(" + PARAM + ")\\}");
 
-    static RequestFactory parse(Method method, Type responseType, Retrofit retrofit) {
+    static RequestFactory parse(Method method, Type responseType, Retrofit retrofit,
+                                MethodTiming timing) {
         RequestFactoryParser parser = new RequestFactoryParser(method);
 
+        long start = System.nanoTime();
         Annotation[] methodAnnotations = method.getAnnotations();
         parser.parseMethodAnnotations(responseType, methodAnnotations);
+        long methodAnnotationsEnd = System.nanoTime();
+        timing.methodAnnotationsNanos = methodAnnotationsEnd - start;
+
         parser.parseParameters(retrofit, methodAnnotations);
+        timing.parametersNanos = System.nanoTime() - methodAnnotationsEnd;
+
+        if (!parser.isCoalesced && retrofit.coalescesRequests()) {
+            parser.isCoalesced = parser.isCoalescable();
+        }
 
         return parser.toRequestFactory(retrofit.baseUrl());
     }
@@ -74,20 +88,34 @@ final class RequestFactoryParser {
     private boolean hasBody;
     private boolean isFormEncoded;
     private boolean isMultipart;
+    private boolean isStreaming;
+    /** True if the response is an {@code Iterator} reading the body as it goes, so only once. */
+    private boolean isIterated;
+    private boolean isCoalesced;
+    private boolean isBodyCached;
     private String relativeUrl;
+    private UrlTemplate urlTemplate;
     private okhttp3.Headers headers;
     private MediaType contentType;
     private RequestAction[] requestActions;
 
-    private Set<String> relativeUrlParamNames;
-
     private RequestFactoryParser(Method method) {
         this.method = method;
     }
 
     private RequestFactory toRequestFactory(BaseUrl baseUrl) {
-        return new RequestFactory(httpMethod, baseUrl, relativeUrl, headers, contentType, hasBody,
-                isFormEncoded, isMultipart, requestActions);
+        return new RequestFactory(httpMethod, baseUrl, urlTemplate, headers, contentType, hasBody,
+                isFormEncoded, isMultipart, requestActions, method.getParameterTypes(), isCoalesced,
+                isBodyCached);
+    }
+
+    /**
+     * Whether concurrent identical calls can safely share one response. Sharing buffers the body,
+     * which streaming responses exist to avoid.
+     */
+    private boolean isCoalescable() {
+        return ("GET".equals(httpMethod) || "HEAD".equals(httpMethod)) && !hasBody && !isStreaming
+                && !isIterated;
     }
 
     private RuntimeException parameterError(Throwable cause, int index, String message,
@@ -100,6 +128,7 @@ final class RequestFactoryParser {
     }
 
     private void parseMethodAnnotations(Type responseType, Annotation[] methodAnnotations) {
+        isIterated = Iterator.class.isAssignableFrom(Types.getRawType(responseType));
         for (Annotation annotation : methodAnnotations) {
             if (annotation instanceof DELETE) {
                 parseHttpMethodAndPath("DELETE", ((DELETE) annotation).value(), false);
@@ -137,6 +166,12 @@ final class RequestFactoryParser {
                     throw methodError(method, "Only one encoding annotation is allowed.");
                 }
                 isFormEncoded = true;
+            } else if (annotation instanceof Streaming) {
+                isStreaming = true;
+            } else if (annotation instanceof Coalesce) {
+                isCoalesced = true;
+            } else if (annotation instanceof CacheBody) {
+                isBodyCached = true;
             }
         }
 
@@ -154,6 +189,28 @@ final class RequestFactoryParser {
                                 + "(e.g., @POST).");
             }
         }
+        if (isCoalesced && isIterated) {
+            throw methodError(method,
+                    "@Coalesce cannot be used with Iterator, which streams the response.");
+        }
+        if (isCoalesced && !isCoalescable()) {
+            throw methodError(method,
+                    "@Coalesce can only be specified on @GET or @HEAD methods without @Streaming.");
+        }
+        if (isBodyCached) {
+            if (!"GET".equals(httpMethod) || hasBody || isStreaming) {
+                throw methodError(method,
+                        "@CacheBody can only be specified on @GET methods without @Streaming.");
+            }
+            if (responseType == ResponseBody.class) {
+                throw methodError(method,
+                        "@CacheBody cannot be used with ResponseBody, which can only be read once.");
+            }
+            if (isIterated) {
+                throw methodError(method,
+                        "@CacheBody cannot be used with Iterator, which can only be read once.");
+            }
+        }
     }
 
     private void parseHttpMethodAndPath(String httpMethod, String value, boolean hasBody) {
@@ -181,7 +238,7 @@ final class RequestFactoryParser {
         }
 
         this.relativeUrl = value;
-        this.relativeUrlParamNames = parsePathParameters(value);
+        this.urlTemplate = UrlTemplate.parse(value, PARAM_URL_REGEX);
     }
 
     private okhttp3.Headers parseHeaders(String[] headers) {
@@ -268,11 +325,15 @@ final class RequestFactoryParser {
 
                         Path path = (Path) parameterAnnotation;
                         String name = path.value();
-                        validatePathName(i, name);
+                        int index = validatePathName(i, name);
 
                         Converter<?, String> converter =
                                 retrofit.stringConverter(parameterType, parameterAnnotations);
-                        action = new RequestAction.Path<>(name, converter, path.encoded());
+                        if (isPrimitiveFormatted(parameterType, converter)) {
+                            action = new RequestAction.PrimitivePath(name, index);
+                        } else {
+                            action = new RequestAction.Path<>(name, index, converter, path.encoded());
+                        }
 
                     } else if (parameterAnnotation instanceof Query) {
                         Query query = (Query) parameterAnnotation;
@@ -293,14 +354,23 @@ final class RequestFactoryParser {
                                     retrofit.stringConverter(iterableType, parameterAnnotations);
                             action = new RequestAction.Query<>(name, converter, encoded).iterable();
                         } else if (rawParameterType.isArray()) {
-                            Class<?> arrayComponentType = boxIfPrimitive(rawParameterType.getComponentType());
+                            Class<?> rawComponentType = rawParameterType.getComponentType();
+                            Class<?> arrayComponentType = boxIfPrimitive(rawComponentType);
                             Converter<?, String> converter =
                                     retrofit.stringConverter(arrayComponentType, parameterAnnotations);
-                            action = new RequestAction.Query<>(name, converter, encoded).array();
+                            if (isPrimitiveFormatted(arrayComponentType, converter)) {
+                                action = new RequestAction.PrimitiveQuery(name, encoded).array(rawComponentType);
+                            } else {
+                                action = new RequestAction.Query<>(name, converter, encoded).array(rawComponentType);
+                            }
                         } else {
                             Converter<?, String> converter =
                                     retrofit.stringConverter(parameterType, parameterAnnotations);
-                            action = new RequestAction.Query<>(name, converter, encoded);
+                            if (isPrimitiveFormatted(parameterType, converter)) {
+                                action = new RequestAction.PrimitiveQuery(name, encoded);
+                            } else {
+                                action = new RequestAction.Query<>(name, converter, encoded);
+                            }
                         }
 
                         gotQuery = true;
@@ -344,14 +414,23 @@ final class RequestFactoryParser {
                                     retrofit.stringConverter(iterableType, parameterAnnotations);
                             action = new RequestAction.Header<>(name, converter).iterable();
                         } else if (rawParameterType.isArray()) {
-                            Class<?> arrayComponentType = boxIfPrimitive(rawParameterType.getComponentType());
+                            Class<?> rawComponentType = rawParameterType.getComponentType();
+                            Class<?> arrayComponentType = boxIfPrimitive(rawComponentType);
                             Converter<?, String> converter =
                                     retrofit.stringConverter(arrayComponentType, parameterAnnotations);
-                            action = new RequestAction.Header<>(name, converter).array();
+                            if (isPrimitiveFormatted(arrayComponentType, converter)) {
+                                action = new RequestAction.PrimitiveHeader(name).array(rawComponentType);
+                            } else {
+                                action = new RequestAction.Header<>(name, converter).array(rawComponentType);
+                            }
                         } else {
                             Converter<?, String> converter =
                                     retrofit.stringConverter(parameterType, parameterAnnotations);
-                            action = new RequestAction.Header<>(name, converter);
+                            if (isPrimitiveFormatted(parameterType, converter)) {
+                                action = new RequestAction.PrimitiveHeader(name);
+                            } else {
+                                action = new RequestAction.Header<>(name, converter);
+                            }
                         }
 
                     } else if (parameterAnnotation instanceof Field) {
@@ -376,10 +455,11 @@ final class RequestFactoryParser {
                                     retrofit.stringConverter(iterableType, parameterAnnotations);
                             action = new RequestAction.Field<>(name, converter, encoded).iterable();
                         } else if (rawParameterType.isArray()) {
-                            Class<?> arrayComponentType = boxIfPrimitive(rawParameterType.getComponentType());
+                            Class<?> rawComponentType = rawParameterType.getComponentType();
+                            Class<?> arrayComponentType = boxIfPrimitive(rawComponentType);
                             Converter<?, String> converter =
                                     retrofit.stringConverter(arrayComponentType, parameterAnnotations);
-                            action = new RequestAction.Field<>(name, converter, encoded).array();
+                            action = new RequestAction.Field<>(name, converter, encoded).array(rawComponentType);
                         } else {
                             Converter<?, String> converter =
                                     retrofit.stringConverter(parameterType, parameterAnnotations);
@@ -418,9 +498,8 @@ final class RequestFactoryParser {
                             throw parameterError(i, "@Part parameters can only be used with multipart encoding.");
                         }
                         Part part = (Part) parameterAnnotation;
-                        okhttp3.Headers headers = okhttp3.Headers.of(
-                                "Content-Disposition", "form-data; name=\"" + part.value() + "\"",
-                                "Content-Transfer-Encoding", part.encoding());
+                        ByteString headers =
+                                MultipartRequestBody.formDataHeaders(part.value(), part.encoding());
 
                         Class<?> rawParameterType = Types.getRawType(parameterType);
                         if (Iterable.class.isAssignableFrom(rawParameterType)) {
@@ -437,11 +516,12 @@ final class RequestFactoryParser {
                                             methodAnnotations);
                             action = new RequestAction.Part<>(headers, converter).iterable();
                         } else if (rawParameterType.isArray()) {
-                            Class<?> arrayComponentType = boxIfPrimitive(rawParameterType.getComponentType());
+                            Class<?> rawComponentType = rawParameterType.getComponentType();
+                            Class<?> arrayComponentType = boxIfPrimitive(rawComponentType);
                             Converter<?, RequestBody> converter =
                                     retrofit.requestBodyConverter(arrayComponentType, parameterAnnotations,
                                             methodAnnotations);
-                            action = new RequestAction.Part<>(headers, converter).array();
+                            action = new RequestAction.Part<>(headers, converter).array(rawComponentType);
                         } else {
                             Converter<?, RequestBody> converter =
                                     retrofit.requestBodyConverter(parameterType, parameterAnnotations,
@@ -528,28 +608,32 @@ final class RequestFactoryParser {
         this.requestActions = requestActions;
     }
 
-    private void validatePathName(int index, String name) {
+    /** Returns the index of {@code name} in the URL template. */
+    private int validatePathName(int index, String name) {
         if (!PARAM_NAME_REGEX.matcher(name).matches()) {
             throw parameterError(index, "@Path parameter name must match %s. Found: %s",
                     PARAM_URL_REGEX.pattern(), name);
         }
         // Verify URL replacement name is actually present in the URL path.
-        if (!relativeUrlParamNames.contains(name)) {
+        int templateIndex = urlTemplate.indexOf(name);
+        if (templateIndex == -1) {
             throw parameterError(index, "URL \"%s\" does not contain \"{%s}\".", relativeUrl, name);
         }
+        return templateIndex;
     }
 
     /**
-     * Gets the set of unique path parameters used in the given URI. If a parameter is used twice
-     * in the URI, it will only show up once in the set.
+     * True if values of {@code type} are integral or boolean and only {@code converter}, the built-in
+     * {@code toString()}, would format them. Such values are formatted by {@link
+     * RequestAction#primitiveToString} instead.
      */
-    static Set<String> parsePathParameters(String path) {
-        Matcher m = PARAM_URL_REGEX.matcher(path);
-        Set<String> patterns = new LinkedHashSet<>();
-        while (m.find()) {
-            patterns.add(m.group(1));
+    private static boolean isPrimitiveFormatted(Type type, Converter<?, String> converter) {
+        if (converter != BuiltInConverters.ToStringConverter.INSTANCE || !(type instanceof Class)) {
+            return false;
         }
-        return patterns;
+        Class<?> boxed = boxIfPrimitive((Class<?>) type);
+        return boxed == Integer.class || boxed == Long.class || boxed == Short.class
+                || boxed == Byte.class || boxed == Boolean.class;
     }
 
     private static Class<?> boxIfPrimitive(Class<?> type) {
@@ -62,28 +62,55 @@ public final class Response<T> {
         this.protocol = builder.protocol;
         this.code = builder.code;
         this.message = builder.message;
-        this.headers = builder.headers.build();
+        this.headers = builder.headers();
         this.originalBody = builder.body;
         this.networkResponse = builder.networkResponse;
         this.cacheResponse = builder.cacheResponse;
         this.priorResponse = builder.priorResponse;
     }
 
-    private Response(Builder builder, T body, ResponseBody errorBody) {
-        this.request = builder.request;
-        this.protocol = builder.protocol;
-        this.code = builder.code;
-        this.message = builder.message;
-        this.headers = builder.headers.build();
-        this.originalBody = builder.body;
-        this.networkResponse = builder.networkResponse;
-        this.cacheResponse = builder.cacheResponse;
-        this.priorResponse = builder.priorResponse;
+    /**
+     * A response which shares everything but its bodies with {@code raw}. Headers are immutable so
+     * they are not copied.
+     */
+    private Response(Response<?> raw, ResponseBody originalBody, T body, ResponseBody errorBody) {
+        this.request = raw.request;
+        this.protocol = raw.protocol;
+        this.code = raw.code;
+        this.message = raw.message;
+        this.headers = raw.headers;
+        this.originalBody = originalBody;
+        this.networkResponse = raw.networkResponse;
+        this.cacheResponse = raw.cacheResponse;
+        this.priorResponse = raw.priorResponse;
+        this.cacheControl = raw.cacheControl;
 
         this.body = body;
         this.errorBody = errorBody;
     }
 
+    private Response(okhttp3.Response raw, Request request) {
+        this.request = request;
+        this.protocol = raw.protocol();
+        this.code = raw.code();
+        this.message = raw.message();
+        this.headers = raw.headers();
+        this.originalBody = raw.body();
+        this.networkResponse = null;
+        this.cacheResponse = null;
+        this.priorResponse = null;
+    }
+
+    /**
+     * Wrap {@code rawResponse}, as received from OkHttp for {@code request}, without copying its
+     * status line or headers. The returned response reads from the body of {@code rawResponse}.
+     */
+    public static Response wrap(okhttp3.Response rawResponse, Request request) {
+        if (rawResponse == null) throw new NullPointerException("rawResponse == null");
+        if (request == null) throw new NullPointerException("request == null");
+        return new Response<>(rawResponse, request);
+    }
+
     /**
      * The wire-level request that initiated this HTTP response. This is not
      * necessarily the same request issued by the application:
@@ -187,6 +214,14 @@ public final class Response<T> {
         return new Builder(this);
     }
 
+    /**
+     * This response with its body replaced by {@code originalBody}. Unlike {@link #newBuilder()} this
+     * does not copy the headers.
+     */
+    Response withOriginalBody(ResponseBody originalBody) {
+        return new Response<>(this, originalBody, null, null);
+    }
+
     /**
      * Returns true if this response redirects to another resource.
      */
@@ -262,7 +297,7 @@ public final class Response<T> {
         if (!rawResponse.isSuccessful()) {
             throw new IllegalArgumentException("rawResponse must be successful response");
         }
-        return new Response<>(new Builder(rawResponse), body, null);
+        return new Response<>(rawResponse, rawResponse.originalBody, body, null);
     }
 
     /**
@@ -287,7 +322,7 @@ public final class Response<T> {
         if (rawResponse.isSuccessful()) {
             throw new IllegalArgumentException("rawResponse should not be successful response");
         }
-        return new Response<>(new Builder(rawResponse), null, body);
+        return new Response<>(rawResponse, rawResponse.originalBody, null, body);
     }
 
     @Override
@@ -311,14 +346,16 @@ public final class Response<T> {
         private Protocol protocol;
         private int code = -1;
         private String message;
-        private Headers.Builder headers;
+        /** Shared with the response this builder came from until a header is changed. */
+        private Headers headers;
+        private Headers.Builder headersBuilder;
         private ResponseBody body;
         private Response networkResponse;
         private Response cacheResponse;
         private Response priorResponse;
 
         public Builder() {
-            headers = new Headers.Builder();
+            headersBuilder = new Headers.Builder();
         }
 
         private Builder(Response response) {
@@ -326,7 +363,7 @@ public final class Response<T> {
             this.protocol = response.protocol;
             this.code = response.code;
             this.message = response.message;
-            this.headers = response.headers.newBuilder();
+            this.headers = response.headers;
             this.body = response.originalBody;
             this.networkResponse = response.networkResponse;
             this.cacheResponse = response.cacheResponse;
@@ -358,7 +395,7 @@ public final class Response<T> {
          * with that name, they are all replaced.
          */
         public Builder header(String name, String value) {
-            headers.set(name, value);
+            headersBuilder().set(name, value);
             return this;
         }
 
@@ -367,12 +404,12 @@ public final class Response<T> {
          * headers like "Set-Cookie".
          */
         public Builder addHeader(String name, String value) {
-            headers.add(name, value);
+            headersBuilder().add(name, value);
             return this;
         }
 
         public Builder removeHeader(String name) {
-            headers.removeAll(name);
+            headersBuilder().removeAll(name);
             return this;
         }
 
@@ -380,10 +417,23 @@ public final class Response<T> {
          * Removes all headers on this builder and adds {@code headers}.
          */
         public Builder headers(Headers headers) {
-            this.headers = headers.newBuilder();
+            this.headers = headers;
+            this.headersBuilder = null;
             return this;
         }
 
+        private Headers.Builder headersBuilder() {
+            if (headersBuilder == null) {
+                headersBuilder = headers.newBuilder();
+                headers = null;
+            }
+            return headersBuilder;
+        }
+
+        private Headers headers() {
+            return headersBuilder != null ? headersBuilder.build() : headers;
+        }
+
         public Builder body(ResponseBody body) {
             this.body = body;
             return this;
@@ -16,22 +16,26 @@
 package retrofit2;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.client.UrlConnectionCallFactory;
+import retrofit2.client.VirtualThreads;
 import retrofit2.http.GET;
 import retrofit2.http.HTTP;
 import retrofit2.http.Header;
@@ -59,23 +63,42 @@ import static retrofit2.Utils.checkNotNull;
  * @author Jake Wharton (jw@squareup.com)
  */
 public final class Retrofit {
-    private final Map<Method, MethodHandler> methodHandlerCache = new LinkedHashMap<>();
+    /**
+     * Suffix of the implementation class that {@code retrofit-compiler} generates next to each
+     * service interface.
+     */
+    static final String GENERATED_SUFFIX = "_Retrofit";
+
+    private final ConcurrentMap<Method, MethodHandler> methodHandlerCache =
+            new ConcurrentHashMap<>();
+    /** Guards creation of a single method's handler so that it is only parsed once. */
+    private final ConcurrentMap<Method, Object> methodHandlerLocks = new ConcurrentHashMap<>();
 
     private final Call.Factory callFactory;
+    /** Shares exchanges between identical calls of {@link retrofit2.http.Coalesce} methods. */
+    private final SingleFlight singleFlight;
     private final BaseUrl baseUrl;
     private final List<Converter.Factory> converterFactories;
     private final List<CallAdapter.Factory> adapterFactories;
     private final Executor callbackExecutor;
+    private final CallEventListener callEventListener;
+    private final BodyCache bodyCache;
+    private final boolean coalesceRequests;
     private final boolean validateEagerly;
 
     Retrofit(Call.Factory callFactory, BaseUrl baseUrl,
              List<Converter.Factory> converterFactories, List<CallAdapter.Factory> adapterFactories,
-             Executor callbackExecutor, boolean validateEagerly) {
+             Executor callbackExecutor, CallEventListener callEventListener, BodyCache bodyCache,
+             boolean coalesceRequests, boolean validateEagerly) {
         this.callFactory = callFactory;
+        this.singleFlight = new SingleFlight(callFactory);
         this.baseUrl = baseUrl;
         this.converterFactories = converterFactories;
         this.adapterFactories = adapterFactories;
         this.callbackExecutor = callbackExecutor;
+        this.callEventListener = callEventListener;
+        this.bodyCache = bodyCache;
+        this.coalesceRequests = coalesceRequests;
         this.validateEagerly = validateEagerly;
     }
 
@@ -124,6 +147,9 @@ public final class Retrofit {
      *   Call&lt;List&lt;Item&gt;&gt; categoryList(@Path("cat") String a, @Query("page") int b);
      * }
      * </pre>
+     * <p/>
+     * If {@code retrofit-compiler} generated an implementation of {@code service} at build time it
+     * is returned instead of a {@link Proxy}, which keeps reflection off the per-call path.
      */
     @SuppressWarnings("unchecked") // Single-interface proxy creation guarded by parameter safety.
     public <T> T create(final Class<T> service) {
@@ -131,6 +157,10 @@ public final class Retrofit {
         if (validateEagerly) {
             eagerlyValidateMethods(service);
         }
+        T generated = createGenerated(service);
+        if (generated != null) {
+            return generated;
+        }
         return (T) Proxy.newProxyInstance(service.getClassLoader(), new Class<?>[]{service},
                 new InvocationHandler() {
                     private final Platform platform = Platform.get();
@@ -150,6 +180,31 @@ public final class Retrofit {
                 });
     }
 
+    private <T> T createGenerated(Class<T> service) {
+        Class<?> generatedClass;
+        try {
+            generatedClass = Class.forName(service.getName() + GENERATED_SUFFIX, true,
+                    service.getClassLoader());
+        } catch (ClassNotFoundException ignored) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = generatedClass.getConstructor(Retrofit.class);
+            return service.cast(constructor.newInstance(this));
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Unable to create " + generatedClass.getName(), cause);
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException("Unable to create " + generatedClass.getName(), e);
+        }
+    }
+
     private void eagerlyValidateMethods(Class<?> service) {
         Platform platform = Platform.get();
         for (Method method : service.getDeclaredMethods()) {
@@ -159,13 +214,61 @@ public final class Retrofit {
         }
     }
 
+    /**
+     * Validate and cache the methods of each of {@code services} in parallel, running one task per
+     * method on {@code executor}. Unlike {@link Builder#validateEagerly}, the caller does not block:
+     * await the returned future to wait for every method to be ready, or ignore it to finish the work
+     * in the background. The future fails with the first configuration error encountered and
+     * otherwise returns how long each method took to parse.
+     * <p/>
+     * Methods which were already created are not parsed again; their original timings are returned.
+     */
+    public Future<List<MethodTiming>> warmUp(Executor executor, Class<?>... services) {
+        checkNotNull(executor, "executor == null");
+        checkNotNull(services, "services == null");
+        Platform platform = Platform.get();
+        List<Method> methods = new ArrayList<>();
+        for (Class<?> service : services) {
+            Utils.validateServiceInterface(service);
+            for (Method method : service.getDeclaredMethods()) {
+                if (!platform.isDefaultMethod(method)) {
+                    methods.add(method);
+                }
+            }
+        }
+        WarmUp warmUp = new WarmUp(this, methods);
+        warmUp.start(executor);
+        return warmUp;
+    }
+
+    /**
+     * Returns the handler for {@code method} of a service interface, parsing it on first use. This is
+     * used by generated service implementations; applications should call {@link #create}.
+     */
+    public MethodHandler methodHandler(Method method) {
+        checkNotNull(method, "method == null");
+        return loadMethodHandler(method);
+    }
+
     MethodHandler loadMethodHandler(Method method) {
-        MethodHandler handler;
-        synchronized (methodHandlerCache) {
+        // Fast path: once created a handler is read without taking any lock.
+        MethodHandler handler = methodHandlerCache.get(method);
+        if (handler != null) {
+            return handler;
+        }
+
+        // Slow path: only callers racing on this same method wait for each other.
+        Object lock = new Object();
+        Object existingLock = methodHandlerLocks.putIfAbsent(method, lock);
+        if (existingLock != null) {
+            lock = existingLock;
+        }
+        synchronized (lock) {
             handler = methodHandlerCache.get(method);
             if (handler == null) {
                 handler = MethodHandler.create(this, method);
                 methodHandlerCache.put(method, handler);
+                methodHandlerLocks.remove(method);
             }
         }
         return handler;
@@ -179,6 +282,26 @@ public final class Retrofit {
         return callFactory;
     }
 
+    SingleFlight singleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * The cache of converted bodies for methods annotated {@link retrofit2.http.CacheBody
+     * @CacheBody}.
+     */
+    public BodyCache bodyCache() {
+        return bodyCache;
+    }
+
+    /**
+     * True if concurrent identical calls of every {@code @GET} and {@code @HEAD} method share one
+     * exchange, not only those annotated {@link retrofit2.http.Coalesce @Coalesce}.
+     */
+    public boolean coalescesRequests() {
+        return coalesceRequests;
+    }
+
     public BaseUrl baseUrl() {
         return baseUrl;
     }
@@ -368,6 +491,14 @@ public final class Retrofit {
         return callbackExecutor;
     }
 
+    /**
+     * The listener notified of the progress of every {@link Call}. {@link CallEventListener#NONE}
+     * unless one was set on the builder.
+     */
+    public CallEventListener callEventListener() {
+        return callEventListener;
+    }
+
     /**
      * Build a new {@link Retrofit}.
      * <p/>
@@ -380,6 +511,10 @@ public final class Retrofit {
         private List<Converter.Factory> converterFactories = new ArrayList<>();
         private List<CallAdapter.Factory> adapterFactories = new ArrayList<>();
         private Executor callbackExecutor;
+        private CallEventListener callEventListener = CallEventListener.NONE;
+        private BodyCache bodyCache;
+        private boolean virtualThreads;
+        private boolean coalesceRequests;
         private boolean validateEagerly;
 
         public Builder() {
@@ -528,9 +663,68 @@ public final class Retrofit {
             return this;
         }
 
+        /**
+         * Run asynchronous calls and their callbacks on virtual threads where the runtime supports
+         * them (Java 21 and newer), so that thousands of calls in flight don't need thousands of
+         * platform threads. On other runtimes, including Android, this has no effect.
+         * <p/>
+         * The default call factory gets a virtual thread per asynchronous call, and callbacks run
+         * on that same thread. It has no limit on the calls in flight, in total or per host. Only
+         * {@code http.maxConnections} (5 by default) connections to each host are kept alive for
+         * reuse, so calls above that open a new connection each. To cap calls per host, pass a
+         * {@link #callFactory} built with {@link UrlConnectionCallFactory.Builder#virtualThreads}
+         * and {@link UrlConnectionCallFactory.Builder#maxRequestsPerHost}.
+         * <p/>
+         * A {@linkplain #callFactory custom call factory} is used as is, so configure its threads
+         * with {@link UrlConnectionCallFactory.Builder#virtualThreads} or {@link
+         * retrofit2.client.OkHttpCallFactory.Builder#virtualThreads}. The OkHttp one has no limit
+         * on calls in flight either when it creates its own client, but keeps the limits of a
+         * client passed to it, which are 64 in total and 5 per host by default. The callbacks of a
+         * custom call factory are handed to a new virtual thread each, unless a {@link
+         * #callbackExecutor} is set.
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Observe the progress of every {@link Call}, for example to record how long requests take.
+         * By default no listener is installed and calls do not read the clock.
+         */
+        public Builder callEventListener(CallEventListener listener) {
+            this.callEventListener = checkNotNull(listener, "listener == null");
+            return this;
+        }
+
+        /**
+         * The cache for converted bodies of methods annotated {@link retrofit2.http.CacheBody
+         * @CacheBody}. Share one instance between {@link Retrofit} instances to share the memory
+         * budget. Defaults to a cache of 256 bodies.
+         */
+        public Builder bodyCache(BodyCache bodyCache) {
+            this.bodyCache = checkNotNull(bodyCache, "bodyCache == null");
+            return this;
+        }
+
+        /**
+         * Share one exchange between concurrent identical calls of every {@code @GET} and
+         * {@code @HEAD} method which is not {@code @Streaming} and does not return an
+         * {@code Iterator}, as if each was annotated {@link retrofit2.http.Coalesce @Coalesce}.
+         * Use this when many callers ask for the same resource at once, to send one request
+         * instead of many.
+         */
+        public Builder coalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
         /**
          * When calling {@link #create} on the resulting {@link Retrofit} instance, eagerly validate
          * the configuration of all methods in the supplied interface.
+         * <p/>
+         * Methods are parsed serially on the calling thread. To spread the work across threads or
+         * move it off the calling thread use {@link Retrofit#warmUp} instead.
          */
         public Builder validateEagerly(boolean validateEagerly) {
             this.validateEagerly = validateEagerly;
@@ -548,20 +742,32 @@ public final class Retrofit {
                 throw new IllegalStateException("Base URL required.");
             }
 
+            boolean virtualThreads = this.virtualThreads && VirtualThreads.isSupported();
+
             Call.Factory callFactory = this.callFactory;
+            Executor callbackExecutor = this.callbackExecutor;
             if (callFactory == null) {
-                callFactory = new UrlConnectionCallFactory();
+                callFactory = new UrlConnectionCallFactory.Builder()
+                        .virtualThreads(virtualThreads)
+                        .build();
+            } else if (callbackExecutor == null && virtualThreads) {
+                callbackExecutor = VirtualThreads.newExecutor();
             }
 
             // Make a defensive copy of the adapters and add the default Call adapter.
             List<CallAdapter.Factory> adapterFactories = new ArrayList<>(this.adapterFactories);
             adapterFactories.add(Platform.get().defaultCallAdapterFactory(callbackExecutor));
 
+            BodyCache bodyCache = this.bodyCache;
+            if (bodyCache == null) {
+                bodyCache = new BodyCache(BodyCache.DEFAULT_MAX_ENTRIES);
+            }
+
             // Make a defensive copy of the converters.
             List<Converter.Factory> converterFactories = new ArrayList<>(this.converterFactories);
 
             return new Retrofit(callFactory, baseUrl, converterFactories, adapterFactories,
-                    callbackExecutor, validateEagerly);
+                    callbackExecutor, callEventListener, bodyCache, coalesceRequests, validateEagerly);
         }
     }
 }
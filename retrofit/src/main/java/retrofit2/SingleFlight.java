@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+/**
+ * A {@link Call.Factory} whose calls share one exchange with {@code delegate} while an identical
+ * request, with the same method, URL and headers, is in flight. The response body is buffered once
+ * and every waiting call receives its own copy.
+ * <p>
+ * The exchange is always enqueued on the delegate, even by {@link Call#execute}, which only waits
+ * for its response. So canceling a synchronous call returns control right away, even when it
+ * started an exchange that other calls still wait for. Asynchronous calls are notified on the
+ * delegate's thread. Canceling one call only detaches it; the exchange is canceled once every call
+ * waiting for it is.
+ *
+ * @see retrofit2.http.Coalesce
+ */
+final class SingleFlight implements Call.Factory {
+    private final Call.Factory delegate;
+    private final ConcurrentMap<String, Exchange> exchanges = new ConcurrentHashMap<>();
+
+    SingleFlight(Call.Factory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Call newCall(Request request) {
+        return new SharedCall(request);
+    }
+
+    /** The number of exchanges in flight. */
+    int exchangeCount() {
+        return exchanges.size();
+    }
+
+    /** Identifies requests which get the same response: the method, URL and headers. */
+    static String key(Request request) {
+        return request.method() + ' ' + request.url() + '\n' + request.headers();
+    }
+
+    /** One request to the delegate and the calls waiting for its response. */
+    final class Exchange implements Callback {
+        private final String key;
+        private final Request request;
+
+        // All guarded by this.
+        private final List<SharedCall> waiting = new ArrayList<>();
+        private Call rawCall;
+        /** True once no more calls may join, because it has completed or was canceled. */
+        private boolean closed;
+
+        Exchange(String key, Request request) {
+            this.key = key;
+            this.request = request;
+        }
+
+        /** Returns false if this exchange is closed and {@code call} must start a new one. */
+        synchronized boolean join(SharedCall call) {
+            if (closed) return false;
+            waiting.add(call);
+            return true;
+        }
+
+        /** Returns false if {@code call} was not waiting, because it has already been notified. */
+        boolean leave(SharedCall call) {
+            Call toCancel;
+            synchronized (this) {
+                if (!waiting.remove(call)) return false;
+                if (!waiting.isEmpty() || closed) return true;
+                closed = true;
+                toCancel = rawCall;
+            }
+            // Nobody is waiting anymore.
+            exchanges.remove(key, this);
+            if (toCancel != null) {
+                toCancel.cancel();
+            }
+            return true;
+        }
+
+        /** Create the delegate call, or return null if every waiting call left already. */
+        private Call newRawCall() {
+            Call call = delegate.newCall(request);
+            if (call == null) {
+                throw new NullPointerException("Call.Factory returned null.");
+            }
+            synchronized (this) {
+                rawCall = call;
+                if (!closed) return call;
+            }
+            call.cancel();
+            return null;
+        }
+
+        void enqueue() {
+            Call call;
+            try {
+                call = newRawCall();
+            } catch (Throwable t) {
+                onFailure(null, t);
+                return;
+            }
+            if (call != null) {
+                call.enqueue(this);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response rawResponse) {
+            ResponseBody rawBody = rawResponse.originalBody();
+            Buffer buffer = new Buffer();
+            try {
+                buffer.writeAll(rawBody.source());
+            } catch (IOException | RuntimeException e) {
+                onFailure(call, e);
+                return;
+            } finally {
+                rawBody.close();
+            }
+
+            for (SharedCall waiter : close()) {
+                ResponseBody body =
+                        ResponseBody.create(rawBody.contentType(), buffer.size(), buffer.clone());
+                waiter.deliver(rawResponse.withOriginalBody(body), null);
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, Throwable t) {
+            for (SharedCall waiter : close()) {
+                waiter.deliver(null, t);
+            }
+        }
+
+        /** Stop accepting calls and return those which are waiting to be notified. */
+        private List<SharedCall> close() {
+            exchanges.remove(key, this);
+            synchronized (this) {
+                closed = true;
+                List<SharedCall> result = new ArrayList<>(waiting);
+                waiting.clear();
+                return result;
+            }
+        }
+    }
+
+    final class SharedCall implements Call {
+        private final Request request;
+        private volatile boolean canceled;
+
+        // All guarded by this.
+        private boolean executed;
+        private Exchange exchange;
+
+        // Set before the latch is released, for execute().
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Response response;
+        private Throwable failure;
+        // For enqueue().
+        private Callback callback;
+
+        SharedCall(Request request) {
+            this.request = request;
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            synchronized (this) {
+                if (executed) throw new IllegalStateException("Already executed.");
+                executed = true;
+            }
+            if (join()) {
+                exchange.enqueue();
+            }
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                cancel();
+                throw new InterruptedIOException();
+            }
+
+            if (failure == null) {
+                return response;
+            } else if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new RuntimeException(failure);
+        }
+
+        @Override
+        public void enqueue(Callback callback) {
+            synchronized (this) {
+                if (executed) throw new IllegalStateException("Already executed.");
+                executed = true;
+                this.callback = callback;
+            }
+            if (join()) {
+                exchange.enqueue();
+            }
+        }
+
+        /** Wait for an exchange, returning true if this call must start it. */
+        private boolean join() {
+            String key = key(request);
+            while (true) {
+                boolean started = false;
+                Exchange joined = exchanges.get(key);
+                if (joined == null) {
+                    Exchange candidate = new Exchange(key, request);
+                    joined = exchanges.putIfAbsent(key, candidate);
+                    if (joined == null) {
+                        joined = candidate;
+                        started = true;
+                    }
+                }
+                if (joined.join(this)) {
+                    synchronized (this) {
+                        exchange = joined;
+                    }
+                    // A cancel() before the exchange was set could not detach this call.
+                    if (canceled) {
+                        cancel();
+                    }
+                    return started;
+                }
+                // That exchange closed between looking it up and joining it.
+            }
+        }
+
+        @SuppressWarnings("unchecked") // Raw types, as for every transport Call.
+        void deliver(Response response, Throwable failure) {
+            Callback callback;
+            synchronized (this) {
+                callback = this.callback;
+            }
+            if (callback == null) {
+                this.response = response;
+                this.failure = failure;
+                done.countDown();
+            } else if (failure == null) {
+                callback.onResponse(this, response);
+            } else {
+                callback.onFailure(this, failure);
+            }
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+
+            Exchange exchange;
+            synchronized (this) {
+                exchange = this.exchange;
+            }
+            if (exchange != null && exchange.leave(this)) {
+                deliver(null, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call clone() {
+            return new SharedCall(request);
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+    }
+}
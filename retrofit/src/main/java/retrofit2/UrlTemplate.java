@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.HttpUrl;
+
+/**
+ * A relative URL such as {@code users/{user}/repos/{repo}} split once into its literal chunks and
+ * {@code {name}} slots. Each distinct name is a variable with an index; a request supplies one
+ * value per variable and {@link #expand} writes the URL in a single pass.
+ * <p/>
+ * Most templates are a plain path with an optional fixed query. For those {@link #newUrlBuilder}
+ * starts from the already parsed base URL and only appends the path, rather than parsing the whole
+ * combined URL again.
+ */
+final class UrlTemplate {
+    private final String template;
+    /**
+     * True if the template has no scheme, authority, fragment or surrounding whitespace, so the
+     * base URL's scheme, credentials, host and port carry over unchanged.
+     */
+    private final boolean plain;
+    /** The encoded query after the '?', or null. Only set for plain templates. */
+    private final String query;
+    /** The text around the slots; always one longer than {@link #slots}. */
+    private final String[] literals;
+    /** The variable index of each slot, in order of appearance. */
+    private final int[] slots;
+    /** Distinct variable names, in order of first appearance. */
+    private final String[] names;
+    private final int literalLength;
+
+    private UrlTemplate(String template, boolean plain, String query, String[] literals,
+                        int[] slots, String[] names) {
+        this.template = template;
+        this.plain = plain;
+        this.query = query;
+        this.literals = literals;
+        this.slots = slots;
+        this.names = names;
+        int literalLength = 0;
+        for (String literal : literals) {
+            literalLength += literal.length();
+        }
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Splits {@code template} on every match of {@code paramPattern}, whose group 1 is the name.
+     * The query string, if any, must not contain a match.
+     */
+    static UrlTemplate parse(String template, Pattern paramPattern) {
+        boolean plain = isPlain(template);
+        String path = template;
+        String query = null;
+        int question = template.indexOf('?');
+        if (plain && question != -1) {
+            path = template.substring(0, question);
+            query = template.substring(question + 1);
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        Matcher m = paramPattern.matcher(path);
+        int literalStart = 0;
+        while (m.find()) {
+            literals.add(path.substring(literalStart, m.start()));
+            String name = m.group(1);
+            int index = names.indexOf(name);
+            if (index == -1) {
+                index = names.size();
+                names.add(name);
+            }
+            slots.add(index);
+            literalStart = m.end();
+        }
+        literals.add(path.substring(literalStart));
+
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new UrlTemplate(template, plain, query, literals.toArray(new String[literals.size()]),
+                slotArray, names.toArray(new String[names.size()]));
+    }
+
+    /**
+     * Returns true unless {@link HttpUrl} would read more than a path and query from {@code
+     * template}: leading or trailing whitespace, a scheme, an authority or a fragment.
+     */
+    private static boolean isPlain(String template) {
+        if (template.isEmpty()) return true;
+        if (template.charAt(0) <= ' ' || template.charAt(template.length() - 1) <= ' ') return false;
+        if (template.indexOf('#') != -1 || template.indexOf('\\') != -1) return false;
+        if (template.startsWith("//")) return false;
+        // A colon in the first segment could be read as a scheme delimiter.
+        for (int i = 0, length = template.length(); i < length; i++) {
+            char c = template.charAt(i);
+            if (c == ':') return false;
+            if (c == '/' || c == '?') break;
+        }
+        return true;
+    }
+
+    /** The number of distinct variables. */
+    int variableCount() {
+        return names.length;
+    }
+
+    /** Returns the index of the variable {@code name}, or -1 if the template does not use it. */
+    int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the URL with each slot replaced by {@code values[variable]}. Slots whose value is null
+     * are left as {@code {name}}, as they are when no parameter binds them.
+     */
+    String expand(String[] values) {
+        if (slots.length == 0) {
+            return template;
+        }
+        String path = expandPath(values);
+        return query != null ? path + '?' + query : path;
+    }
+
+    /**
+     * Returns a builder for this template resolved against {@code baseUrl}, with each slot replaced
+     * by {@code values[variable]}. The result is the same as {@code
+     * baseUrl.newBuilder(expand(values))}.
+     */
+    HttpUrl.Builder newUrlBuilder(HttpUrl baseUrl, String[] values) {
+        if (!plain) {
+            return baseUrl.newBuilder(expand(values));
+        }
+
+        HttpUrl.Builder result = baseUrl.newBuilder().encodedFragment(null);
+        String path = expandPath(values);
+        if (!path.isEmpty() || query != null) {
+            // An empty link keeps the base URL's query; anything else replaces it.
+            result.encodedQuery(query);
+        }
+        if (path.startsWith("/")) {
+            result.encodedPath(path);
+        } else if (!path.isEmpty()) {
+            // Like resolving a relative link, replace everything after the base's last '/'.
+            int last = baseUrl.pathSize() - 1;
+            if (!baseUrl.pathSegments().get(last).isEmpty()) {
+                result.setEncodedPathSegment(last, "");
+            }
+            result.addEncodedPathSegments(path);
+        }
+        return result;
+    }
+
+    private String expandPath(String[] values) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        int length = literalLength;
+        for (int slot : slots) {
+            String value = values[slot];
+            length += value != null ? value.length() : names[slot].length() + 2;
+        }
+
+        StringBuilder result = new StringBuilder(length);
+        result.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            String value = values[slot];
+            if (value != null) {
+                result.append(value);
+            } else {
+                result.append('{').append(names[slot]).append('}');
+            }
+            result.append(literals[i + 1]);
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Creates the handlers of a fixed set of service methods with one task per method. Completes once
+ * every task has run; the first failure, if any, is reported by {@link #get}.
+ */
+final class WarmUp implements Future<List<MethodTiming>> {
+    private final Retrofit retrofit;
+    private final List<Method> methods;
+    private final MethodTiming[] timings;
+    private final CountDownLatch remaining;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    WarmUp(Retrofit retrofit, List<Method> methods) {
+        this.retrofit = retrofit;
+        this.methods = methods;
+        this.timings = new MethodTiming[methods.size()];
+        this.remaining = new CountDownLatch(methods.size());
+    }
+
+    void start(Executor executor) {
+        for (int i = 0, count = methods.size(); i < count; i++) {
+            final int index = i;
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        timings[index] = retrofit.loadMethodHandler(methods.get(index)).timing;
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        remaining.countDown();
+                    }
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RuntimeException e) {
+                // Don't leave the latch waiting on tasks that will never run.
+                failure.compareAndSet(null, e);
+                for (int j = i; j < count; j++) {
+                    remaining.countDown();
+                }
+                return;
+            }
+        }
+    }
+
+    /** Returns false: tasks that have already been handed to the executor are not interrupted. */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return remaining.getCount() == 0;
+    }
+
+    @Override
+    public List<MethodTiming> get() throws InterruptedException, ExecutionException {
+        remaining.await();
+        return result();
+    }
+
+    @Override
+    public List<MethodTiming> get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (!remaining.await(timeout, unit)) {
+            throw new TimeoutException(remaining.getCount() + " of " + methods.size()
+                    + " methods not yet validated");
+        }
+        return result();
+    }
+
+    private List<MethodTiming> result() throws ExecutionException {
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new ExecutionException(t);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(timings)));
+    }
+}
@@ -1,7 +1,5 @@
 package retrofit2.client;
 
-import android.util.Log;
-
 import java.io.IOException;
 
 import okhttp3.OkHttpClient;
@@ -16,22 +14,24 @@ import retrofit2.Response;
  */
 public class OkHttpCall implements Call {
 
-    private static final String TAG = "OkHttpCall";
     /** The application's original request unadulterated by redirects or auth headers. */
     Request originalRequest;
     OkHttpClient okHttpClient;
 
-    private okhttp3.Call rawCall;
     private volatile boolean canceled;
 
-    protected OkHttpCall(Request originalRequest) {
+    // All guarded by this.
+    private okhttp3.Call rawCall;
+    private boolean executed;
+
+    protected OkHttpCall(OkHttpClient okHttpClient, Request originalRequest) {
+        this.okHttpClient = okHttpClient;
         this.originalRequest = originalRequest;
-        this.okHttpClient = new OkHttpClient();
     }
 
     @Override
     public Call clone() {
-        return null;
+        return new OkHttpCall(okHttpClient, originalRequest);
     }
 
     @Override
@@ -41,13 +41,15 @@ public class OkHttpCall implements Call {
 
     @Override
     public void enqueue(final Callback aRetrofitCallback) {
+        synchronized (this) {
+            if (executed) throw new IllegalStateException("Already executed.");
+            executed = true;
+        }
         try {
-            rawCall = createRawCall();
-            rawCall.enqueue(new okhttp3.Callback() {
+            createRawCall().enqueue(new okhttp3.Callback() {
 
                 @Override
                 public void onResponse(okhttp3.Call call, okhttp3.Response rawResponse) {
-                    Log.d(TAG, "onResponse()");
                     Response response;
                     try {
                         response = parseResponse(rawResponse);
@@ -79,15 +81,18 @@ public class OkHttpCall implements Call {
                     }
                 }
             });
-        } catch (IOException ioEx) {
-            Log.e(TAG, ioEx.toString());
+        } catch (IOException e) {
+            aRetrofitCallback.onFailure(this, e);
         }
     }
 
     @Override
     public Response execute() throws IOException {
-        rawCall = createRawCall();
-        return parseResponse(rawCall.execute());
+        synchronized (this) {
+            if (executed) throw new IllegalStateException("Already executed.");
+            executed = true;
+        }
+        return parseResponse(createRawCall().execute());
     }
 
     private okhttp3.Call createRawCall() throws IOException {
@@ -95,29 +100,29 @@ public class OkHttpCall implements Call {
         if (call == null) {
             throw new NullPointerException("Call.Factory returned null.");
         }
+        synchronized (this) {
+            rawCall = call;
+        }
+        // Checked after publishing the call so that a concurrent cancel() either sees it or is seen
+        // here.
+        if (canceled) {
+            call.cancel();
+        }
         return call;
     }
 
 
     private Response parseResponse(okhttp3.Response rawResponse) {
-        return new Response.Builder()
-                .code(rawResponse.code())
-                .message(rawResponse.message())
-                .request(originalRequest)
-                .protocol(rawResponse.protocol())
-                .headers(rawResponse.headers())
-                .body(rawResponse.body())
-                .build();
+        return Response.wrap(rawResponse, originalRequest);
     }
 
     @Override
-    public boolean isExecuted() {
-        return false;
+    public synchronized boolean isExecuted() {
+        return executed;
     }
 
     @Override
     public boolean isCanceled() {
-        Log.d(TAG, "isCanceled");
         return canceled;
     }
 
@@ -1,23 +1,104 @@
 package retrofit2.client;
 
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import retrofit2.Call;
 
 /**
  * OkHttpCallFactory
+ * <p/>
+ * Owns a single {@link OkHttpClient} whose connection pool, dispatcher and cache are shared by
+ * every {@link OkHttpCall} this factory creates. Create one factory per configuration and reuse it.
  * Created by Yangjing on 2016/5/9.
  */
 public class OkHttpCallFactory implements Call.Factory {
 
     /**
-     * Create an instance using a default instance for UrlConnection callFactory.
+     * Create an instance using a default {@link OkHttpClient}.
      */
     public static OkHttpCallFactory create() {
-        return new OkHttpCallFactory();
+        return new Builder().build();
+    }
+
+    /**
+     * Create an instance which sends all of its calls through {@code client}.
+     */
+    public static OkHttpCallFactory create(OkHttpClient client) {
+        return new Builder().client(client).build();
+    }
+
+    private final OkHttpClient client;
+
+    OkHttpCallFactory(Builder builder) {
+        OkHttpClient client = builder.client != null ? builder.client : new OkHttpClient();
+        if (builder.virtualThreads && VirtualThreads.isSupported()) {
+            Dispatcher dispatcher = new Dispatcher(VirtualThreads.newExecutor());
+            if (builder.client != null) {
+                dispatcher.setMaxRequests(client.dispatcher().getMaxRequests());
+                dispatcher.setMaxRequestsPerHost(client.dispatcher().getMaxRequestsPerHost());
+            } else {
+                // Virtual threads are cheap to block, so nothing limits the calls in flight.
+                dispatcher.setMaxRequests(Integer.MAX_VALUE);
+                dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+            }
+            client = client.newBuilder().dispatcher(dispatcher).build();
+        }
+        this.client = client;
+    }
+
+    /**
+     * The client shared by all calls created by this factory.
+     */
+    public OkHttpClient client() {
+        return client;
+    }
+
+    public Builder newBuilder() {
+        return new Builder(this);
     }
 
     @Override
     public Call newCall(Request request) {
-        return new OkHttpCall(request);
+        return new OkHttpCall(client, request);
+    }
+
+    public static final class Builder {
+        private OkHttpClient client;
+        private boolean virtualThreads;
+
+        public Builder() {
+        }
+
+        Builder(OkHttpCallFactory factory) {
+            this.client = factory.client;
+        }
+
+        /**
+         * The client used for all calls. Its connection pool, dispatcher and cache are shared, so
+         * derive per-endpoint variations with {@link OkHttpClient#newBuilder()} rather than creating
+         * unrelated instances.
+         */
+        public Builder client(OkHttpClient client) {
+            if (client == null) throw new NullPointerException("client == null");
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * Run asynchronous calls on virtual threads, one per call, instead of the platform threads of
+         * the client's {@link Dispatcher}. The client is copied with a new dispatcher. Without a
+         * {@linkplain #client client} it has no limit on requests in total or per host;
+         * otherwise it keeps the limits of the client's dispatcher, so set those before calling
+         * {@link #build}. Runtimes without virtual threads use the client unchanged.
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        public OkHttpCallFactory build() {
+            return new OkHttpCallFactory(this);
+        }
     }
 }
@@ -1,9 +1,5 @@
 package retrofit2.client;
 
-import android.text.TextUtils;
-import android.util.Log;
-
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -11,10 +7,7 @@ import java.net.URL;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.RejectedExecutionException;
 
 import okhttp3.Headers;
 import okhttp3.MediaType;
@@ -22,43 +15,45 @@ import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
-import static java.lang.Thread.MIN_PRIORITY;
-
 /**
  * UrlConnectionCall
  * Created by Terence on 2016/5/7.
  */
 public class UrlConnectionCall implements Call {
 
-    private static final String TAG = "UrlConnectionCall";
-
     private static final int CHUNK_SIZE = 4096;
 
     static final int CONNECT_TIMEOUT_MILLIS = 15 * 1000; // 15s
     static final int READ_TIMEOUT_MILLIS = 20 * 1000; // 20s
 
-    static final String THREAD_PREFIX = "Retrofit-";
-    static final String IDLE_THREAD_NAME = THREAD_PREFIX + "Idle";
-
-    private static final int BUFFER_SIZE = 0x1000;
-
     /** The application's original request unadulterated by redirects or auth headers. */
     Request originalRequest;
 
-    private final Executor httpExecutor;
+    private final UrlConnectionDispatcher dispatcher;
+
+    private volatile boolean canceled;
 
-    protected UrlConnectionCall(Request originalRequest) {
+    // All guarded by this.
+    private HttpURLConnection connection;
+    private boolean executed;
+
+    protected UrlConnectionCall(UrlConnectionDispatcher dispatcher, Request originalRequest) {
+        this.dispatcher = dispatcher;
         this.originalRequest = originalRequest;
-        httpExecutor = getHttpExecutor();
     }
 
     @Override
     public Call clone() {
-        return null;
+        return new UrlConnectionCall(dispatcher, originalRequest);
     }
 
     @Override
@@ -68,56 +63,93 @@ public class UrlConnectionCall implements Call {
 
     @Override
     public Response execute() throws IOException {
-        HttpURLConnection connection = openConnection(originalRequest);
-        prepareRequest(connection, originalRequest);
-        return readResponse(connection, originalRequest);
+        synchronized (this) {
+            if (executed) throw new IllegalStateException("Already executed.");
+            executed = true;
+        }
+        return getResponse();
     }
 
     @Override
-    public void enqueue(final Callback callback) {
-        httpExecutor.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    HttpURLConnection connection = openConnection(originalRequest);
-                    prepareRequest(connection, originalRequest);
-                    Response response = readResponse(connection, originalRequest);
-                    callback.onResponse(UrlConnectionCall.this, response);
-                } catch (Exception ex) {
-                    callback.onFailure(UrlConnectionCall.this, ex);
-                }
-            }
-        });
+    public void enqueue(Callback callback) {
+        synchronized (this) {
+            if (executed) throw new IllegalStateException("Already executed.");
+            executed = true;
+        }
+        dispatcher.enqueue(new AsyncCall(callback));
     }
 
     @Override
-    public boolean isExecuted() {
-        return false;
+    public synchronized boolean isExecuted() {
+        return executed;
     }
 
+    /**
+     * Disconnect the connection of this call. A request or response which is being written or read
+     * fails with an {@link IOException} right away instead of waiting for a timeout, and a call
+     * which has not connected yet never will.
+     */
     @Override
     public void cancel() {
+        canceled = true;
 
+        HttpURLConnection connection;
+        synchronized (this) {
+            connection = this.connection;
+        }
+        if (connection != null) {
+            connection.disconnect();
+        }
     }
 
     @Override
     public boolean isCanceled() {
-        return false;
+        return canceled;
     }
 
-    private Executor getHttpExecutor() {
-        return Executors.newCachedThreadPool(new ThreadFactory() {
-            @Override
-            public Thread newThread(final Runnable r) {
-                return new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        Thread.currentThread().setPriority(MIN_PRIORITY);
-                        r.run();
-                    }
-                }, IDLE_THREAD_NAME);
+    private Response getResponse() throws IOException {
+        HttpURLConnection connection = openConnection(originalRequest);
+        synchronized (this) {
+            this.connection = connection;
+        }
+        // Checked after publishing the connection so that a concurrent cancel() either sees it or
+        // is seen here.
+        if (canceled) {
+            connection.disconnect();
+            throw new IOException("Canceled");
+        }
+        prepareRequest(connection, originalRequest);
+        return readResponse(connection, originalRequest);
+    }
+
+    final class AsyncCall implements Runnable {
+        private final Callback callback;
+
+        AsyncCall(Callback callback) {
+            this.callback = callback;
+        }
+
+        String host() {
+            return originalRequest.url().host();
+        }
+
+        @Override
+        public void run() {
+            try {
+                Response response = getResponse();
+                callback.onResponse(UrlConnectionCall.this, response);
+            } catch (Exception ex) {
+                callback.onFailure(UrlConnectionCall.this, ex);
+            } finally {
+                dispatcher.finished(this);
             }
-        });
+        }
+
+        /** Called by the dispatcher when its executor refuses this call. */
+        void rejected(RejectedExecutionException e) {
+            callback.onFailure(UrlConnectionCall.this,
+                    new IOException("Dispatcher queue is full", e));
+        }
     }
 
 
@@ -141,14 +173,30 @@ public class UrlConnectionCall implements Call {
         RequestBody body = request.body();
         if (body != null) {
             connection.setDoOutput(true);
-            connection.addRequestProperty("Content-Type", body.contentType().toString());
+            MediaType contentType = body.contentType();
+            if (contentType != null) {
+                connection.addRequestProperty("Content-Type", contentType.toString());
+            }
             long length = body.contentLength();
             if (length != -1) {
-                connection.setFixedLengthStreamingMode((int) length);
+                if (length <= Integer.MAX_VALUE) {
+                    connection.setFixedLengthStreamingMode((int) length);
+                } else {
+                    // Needs Java 7 or Android 4.4, unlike the int overload.
+                    connection.setFixedLengthStreamingMode(length);
+                }
                 connection.addRequestProperty("Content-Length", String.valueOf(length));
             } else {
                 connection.setChunkedStreamingMode(CHUNK_SIZE);
             }
+
+            // Written straight to the connection, which sends it as it is written.
+            BufferedSink sink = Okio.buffer(Okio.sink(connection.getOutputStream()));
+            try {
+                body.writeTo(sink);
+            } finally {
+                sink.close();
+            }
         }
     }
 
@@ -160,7 +208,7 @@ public class UrlConnectionCall implements Call {
         Headers.Builder builder = new Headers.Builder();
         for (Map.Entry<String, List<String>> field : connection.getHeaderFields().entrySet()) {
             String name = field.getKey();
-            if (!TextUtils.isEmpty(name)) {
+            if (name != null && !name.isEmpty()) {
                 for (String value : field.getValue()) {
                     builder.add(name, value);
                 }
@@ -169,49 +217,100 @@ public class UrlConnectionCall implements Call {
         }
         Headers headers = builder.build();
 
+        MediaType contentType = null;
         String mimeType = connection.getContentType();
-//        int length = connection.getContentLength();
+        if (mimeType != null) {
+            contentType = MediaType.parse(mimeType);
+        }
+        long contentLength = -1;
+        String length = connection.getHeaderField("Content-Length");
+        if (length != null) {
+            try {
+                contentLength = Long.parseLong(length);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
         InputStream inputStream;
-        GZIPInputStream gzin = null;
         if (status >= 400) {
             inputStream = connection.getErrorStream();
         } else {
             inputStream = connection.getInputStream();
         }
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            if (inputStream != null) {
-                byte[] buf = new byte[BUFFER_SIZE];
-                int r;
-                while ((r = inputStream.read(buf)) != -1) {
-                    baos.write(buf, 0, r);
-                }
-                byte[] data = baos.toByteArray();
-                if (baos != null) {
-                    baos.close();
-                }
-                if (data != null && data.length > 0) {
-                    ResponseBody responseBody = ResponseBody.create(MediaType.parse(mimeType), data);
-                    Protocol protocol = Protocol.HTTP_1_0;
-                    try {
-                        protocol = Protocol.get(connection.getURL().getProtocol());
-                    } catch (IOException ioException) {
-                        protocol = Protocol.HTTP_1_1;
+        ResponseBody body =
+                new StreamingResponseBody(connection, inputStream, contentType, contentLength);
+
+        return new Response.Builder()
+                .code(status)
+                .message(reason)
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .headers(headers)
+                .body(body)
+                .build();
+    }
+
+    /**
+     * A response body read straight from the connection's stream. Nothing is buffered beyond okio's
+     * segments, so memory use does not depend on the size of the body. Closing the body closes the
+     * stream; a fully read stream returns its socket to the keep-alive cache, otherwise the
+     * connection is disconnected.
+     */
+    static final class StreamingResponseBody extends ResponseBody {
+        private final HttpURLConnection connection;
+        private final MediaType contentType;
+        private final long contentLength;
+        private final BufferedSource source;
+        private boolean exhausted;
+
+        StreamingResponseBody(HttpURLConnection connection, InputStream inputStream,
+                              MediaType contentType, long contentLength) {
+            this.connection = connection;
+            this.contentType = contentType;
+            this.contentLength = contentLength;
+            if (inputStream == null) {
+                this.exhausted = true;
+                this.source = new Buffer();
+            } else {
+                this.source = Okio.buffer(new ForwardingSource(Okio.source(inputStream)) {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        long read = super.read(sink, byteCount);
+                        if (read == -1) {
+                            exhausted = true;
+                        }
+                        return read;
                     }
-                    return new Response.Builder()
-                            .code(status)
-                            .message(reason)
-                            .request(request)
-                            .protocol(protocol)
-                            .headers(headers)
-                            .body(responseBody)
-                            .build();
-                }
+                });
+            }
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+
+        @Override
+        public void close() {
+            try {
+                source.close();
+            } catch (IOException ignored) {
+            }
+            if (!exhausted) {
+                // The socket still has unread bytes and can't be reused.
+                connection.disconnect();
             }
-        } catch (Exception ex) {
-            Log.d(TAG, "readResponse: " + ex.toString());
         }
-        return null;
     }
 
 
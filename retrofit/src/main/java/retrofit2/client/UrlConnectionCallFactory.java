@@ -5,22 +5,147 @@ import retrofit2.Call;
 
 /**
  * UrlConnectionCallFactory
+ * <p/>
+ * Owns a single {@link UrlConnectionDispatcher}, so asynchronous calls from this factory share one
+ * bounded executor and its per-host limits. Create one factory per configuration and reuse it.
  * Created by Yangjing on 2016/5/6.
  */
 public class UrlConnectionCallFactory implements Call.Factory {
 
     /**
-     * Create an instance using a default instance for UrlConnection callFactory.
+     * Create an instance using a default {@link UrlConnectionDispatcher}.
      */
     public static UrlConnectionCallFactory create() {
-        return new UrlConnectionCallFactory();
+        return new Builder().build();
+    }
+
+    private final UrlConnectionDispatcher dispatcher;
+
+    UrlConnectionCallFactory(Builder builder) {
+        if (builder.dispatcher != null) {
+            this.dispatcher = builder.dispatcher;
+        } else if (builder.virtualThreads && VirtualThreads.isSupported()) {
+            // Virtual threads are cheap to block, so nothing limits the calls in flight by default.
+            this.dispatcher = new UrlConnectionDispatcher(VirtualThreads.newExecutor(),
+                    orDefault(builder.queueCapacity, Integer.MAX_VALUE));
+            this.dispatcher.setMaxRequests(orDefault(builder.maxRequests, Integer.MAX_VALUE));
+            this.dispatcher.setMaxRequestsPerHost(
+                    orDefault(builder.maxRequestsPerHost, Integer.MAX_VALUE));
+        } else {
+            int queueCapacity =
+                    orDefault(builder.queueCapacity, UrlConnectionDispatcher.DEFAULT_QUEUE_CAPACITY);
+            this.dispatcher = new UrlConnectionDispatcher(builder.maxThreads, queueCapacity);
+            if (builder.maxRequests != 0) {
+                this.dispatcher.setMaxRequests(builder.maxRequests);
+            }
+            if (builder.maxRequestsPerHost != 0) {
+                this.dispatcher.setMaxRequestsPerHost(builder.maxRequestsPerHost);
+            }
+        }
+    }
+
+    /** Returns {@code value}, or {@code defaultValue} if it was not set. */
+    private static int orDefault(int value, int defaultValue) {
+        return value != 0 ? value : defaultValue;
+    }
+
+    /**
+     * The dispatcher shared by all calls created by this factory.
+     */
+    public UrlConnectionDispatcher dispatcher() {
+        return dispatcher;
     }
 
     @Override
     public Call newCall(Request request) {
-        return new UrlConnectionCall(request);
+        return new UrlConnectionCall(dispatcher, request);
     }
 
+    public static final class Builder {
+        private UrlConnectionDispatcher dispatcher;
+        private int maxThreads = UrlConnectionDispatcher.DEFAULT_MAX_THREADS;
+        // Zero for the default of the chosen threads.
+        private int queueCapacity;
+        private int maxRequests;
+        private int maxRequestsPerHost;
+        private boolean virtualThreads;
+
+        /**
+         * Use {@code dispatcher} for asynchronous calls. This takes precedence over every other
+         * setting of this builder.
+         */
+        public Builder dispatcher(UrlConnectionDispatcher dispatcher) {
+            if (dispatcher == null) throw new NullPointerException("dispatcher == null");
+            this.dispatcher = dispatcher;
+            return this;
+        }
+
+        /**
+         * The maximum number of threads used to run asynchronous calls.
+         */
+        public Builder maxThreads(int maxThreads) {
+            if (maxThreads < 1) throw new IllegalArgumentException("maxThreads < 1: " + maxThreads);
+            this.maxThreads = maxThreads;
+            return this;
+        }
+
+        /**
+         * The number of calls which may wait for a running call to complete. Calls beyond it fail
+         * with an {@link java.io.IOException} instead of queueing without limit. Defaults to 128,
+         * or to no limit with {@linkplain #virtualThreads virtual threads}.
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("queueCapacity < 1: " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
 
+        /**
+         * The maximum number of asynchronous calls in flight at once. Defaults to {@link
+         * #maxThreads}, or to no limit with {@linkplain #virtualThreads virtual threads}.
+         *
+         * @see UrlConnectionDispatcher#setMaxRequests
+         */
+        public Builder maxRequests(int maxRequests) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("maxRequests < 1: " + maxRequests);
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
 
+        /**
+         * The maximum number of asynchronous calls in flight at once to each host. Defaults to 5,
+         * or to no limit with {@linkplain #virtualThreads virtual threads}.
+         *
+         * @see UrlConnectionDispatcher#setMaxRequestsPerHost
+         */
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequestsPerHost < 1: " + maxRequestsPerHost);
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Run asynchronous calls on virtual threads, one per call, instead of a bounded pool of
+         * platform threads. {@link #maxThreads} is then ignored, and unless they are set there is
+         * no limit on {@linkplain #maxRequests requests}, {@linkplain #maxRequestsPerHost requests
+         * per host} or {@linkplain #queueCapacity waiting calls}. Only {@code http.maxConnections}
+         * (5 by default) connections to each host are kept alive for reuse, so calls above that
+         * open a new connection each. Runtimes without virtual threads use platform threads as if
+         * this was never called.
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        public UrlConnectionCallFactory build() {
+            return new UrlConnectionCallFactory(this);
+        }
+    }
 }
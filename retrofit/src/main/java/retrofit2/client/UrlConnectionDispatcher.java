@@ -0,0 +1,283 @@
+package retrofit2.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import retrofit2.client.UrlConnectionCall.AsyncCall;
+
+import static java.lang.Thread.MIN_PRIORITY;
+
+/**
+ * Policy on when asynchronous {@link UrlConnectionCall}s are executed, in the spirit of
+ * {@link okhttp3.Dispatcher}.
+ * <p/>
+ * Calls run on a single bounded executor shared by every call of a {@link UrlConnectionCallFactory}.
+ * Above {@linkplain #getMaxRequests() the maximum} number of requests, or {@linkplain
+ * #getMaxRequestsPerHost() the maximum per host}, calls queue in memory until a running call
+ * completes. At most {@linkplain #getQueueCapacity() the queue capacity} calls wait; calls beyond
+ * it fail with an {@link java.io.IOException}. If you supply your own executor, it should be able
+ * to run the configured maximum number of calls concurrently.
+ * <p/>
+ * State is guarded by a {@link ReentrantLock} rather than {@code synchronized} so that virtual
+ * threads waiting for it don't pin their carrier thread.
+ */
+public final class UrlConnectionDispatcher {
+    static final String THREAD_PREFIX = "Retrofit-";
+    static final String IDLE_THREAD_NAME = THREAD_PREFIX + "Idle";
+
+    static final int DEFAULT_MAX_THREADS = 16;
+    static final int DEFAULT_QUEUE_CAPACITY = 128;
+
+    private int maxRequests = DEFAULT_MAX_THREADS;
+    private int maxRequestsPerHost = 5;
+
+    private final ExecutorService executorService;
+    private final int queueCapacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Ready async calls in the order they'll be run. */
+    private final Deque<AsyncCall> readyAsyncCalls = new ArrayDeque<>();
+
+    /**
+     * Running asynchronous calls. Includes canceled calls that haven't finished yet. A set, since
+     * with virtual threads it may hold thousands of calls, each removed when it completes.
+     */
+    private final Set<AsyncCall> runningAsyncCalls = new LinkedHashSet<>();
+
+    /** Create a dispatcher running calls on {@code executorService}, with no limit on waiting. */
+    public UrlConnectionDispatcher(ExecutorService executorService) {
+        this(executorService, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a dispatcher running calls on {@code executorService}. At most {@code queueCapacity}
+     * calls wait for a running call to complete.
+     */
+    public UrlConnectionDispatcher(ExecutorService executorService, int queueCapacity) {
+        if (executorService == null) throw new NullPointerException("executorService == null");
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity < 1: " + queueCapacity);
+        }
+        this.executorService = executorService;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Create a dispatcher backed by at most {@code maxThreads} threads, running as many requests at
+     * once. At most {@code queueCapacity} more calls wait for one of them to complete; idle threads
+     * exit after a minute.
+     */
+    public UrlConnectionDispatcher(int maxThreads, int queueCapacity) {
+        if (maxThreads < 1) throw new IllegalArgumentException("maxThreads < 1: " + maxThreads);
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity < 1: " + queueCapacity);
+        }
+        // Unbounded: the dispatcher itself bounds the calls handed to it.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        Thread thread = new Thread(r, IDLE_THREAD_NAME);
+                        thread.setPriority(MIN_PRIORITY);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.executorService = executor;
+        this.queueCapacity = queueCapacity;
+        this.maxRequests = maxThreads;
+    }
+
+    public UrlConnectionDispatcher() {
+        this(DEFAULT_MAX_THREADS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public ExecutorService executorService() {
+        return executorService;
+    }
+
+    /** The maximum number of calls which wait for a running call to complete. */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Set the maximum number of requests to execute concurrently. Above this requests queue in
+     * memory, waiting for the running calls to complete.
+     */
+    public void setMaxRequests(int maxRequests) {
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("max < 1: " + maxRequests);
+        }
+        List<Rejection> rejections = new ArrayList<>();
+        lock.lock();
+        try {
+            this.maxRequests = maxRequests;
+            promoteCalls(rejections);
+        } finally {
+            lock.unlock();
+        }
+        notifyRejected(rejections);
+    }
+
+    public int getMaxRequests() {
+        lock.lock();
+        try {
+            return maxRequests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Set the maximum number of requests for each host to execute concurrently. This limits requests
+     * by the URL's host name. Keeping it at or below the {@code http.maxConnections} system property
+     * (5 by default) lets every request to a host reuse a kept-alive connection.
+     */
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        if (maxRequestsPerHost < 1) {
+            throw new IllegalArgumentException("max < 1: " + maxRequestsPerHost);
+        }
+        List<Rejection> rejections = new ArrayList<>();
+        lock.lock();
+        try {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            promoteCalls(rejections);
+        } finally {
+            lock.unlock();
+        }
+        notifyRejected(rejections);
+    }
+
+    public int getMaxRequestsPerHost() {
+        lock.lock();
+        try {
+            return maxRequestsPerHost;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void enqueue(AsyncCall call) {
+        List<Rejection> rejections = new ArrayList<>();
+        lock.lock();
+        try {
+            if (runningAsyncCalls.size() < maxRequests
+                    && runningCallsForHost(call) < maxRequestsPerHost) {
+                runningAsyncCalls.add(call);
+                execute(call, rejections);
+            } else if (readyAsyncCalls.size() < queueCapacity) {
+                readyAsyncCalls.add(call);
+            } else {
+                rejections.add(new Rejection(call, new RejectedExecutionException(
+                        "More than " + queueCapacity + " calls are waiting")));
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyRejected(rejections);
+    }
+
+    /** Used by {@code AsyncCall#run} to signal completion. */
+    void finished(AsyncCall call) {
+        List<Rejection> rejections = new ArrayList<>();
+        lock.lock();
+        try {
+            if (!runningAsyncCalls.remove(call)) throw new AssertionError("AsyncCall wasn't running!");
+            promoteCalls(rejections);
+        } finally {
+            lock.unlock();
+        }
+        notifyRejected(rejections);
+    }
+
+    /** Hand {@code call} to the executor, or add it to {@code rejections} if it refuses it. */
+    private void execute(AsyncCall call, List<Rejection> rejections) {
+        try {
+            executorService.execute(call);
+        } catch (RejectedExecutionException e) {
+            runningAsyncCalls.remove(call);
+            rejections.add(new Rejection(call, e));
+        }
+    }
+
+    /** Fail the rejected calls. Runs their callbacks, so it must be called without the lock. */
+    private static void notifyRejected(List<Rejection> rejections) {
+        for (int i = 0, size = rejections.size(); i < size; i++) {
+            Rejection rejection = rejections.get(i);
+            rejection.call.rejected(rejection.cause);
+        }
+    }
+
+    private void promoteCalls(List<Rejection> rejections) {
+        if (runningAsyncCalls.size() >= maxRequests) return; // Already running max capacity.
+        if (readyAsyncCalls.isEmpty()) return; // No ready calls to promote.
+
+        for (Iterator<AsyncCall> i = readyAsyncCalls.iterator(); i.hasNext(); ) {
+            AsyncCall call = i.next();
+
+            if (runningCallsForHost(call) < maxRequestsPerHost) {
+                i.remove();
+                runningAsyncCalls.add(call);
+                execute(call, rejections);
+            }
+
+            if (runningAsyncCalls.size() >= maxRequests) return; // Reached max capacity.
+        }
+    }
+
+    /** Returns the number of running calls that share a host with {@code call}. */
+    private int runningCallsForHost(AsyncCall call) {
+        // Without a limit per host, don't count: with many calls running it would dominate.
+        if (maxRequestsPerHost == Integer.MAX_VALUE) return 0;
+
+        int result = 0;
+        for (AsyncCall c : runningAsyncCalls) {
+            if (c.host().equals(call.host())) result++;
+        }
+        return result;
+    }
+
+    public int queuedCallsCount() {
+        lock.lock();
+        try {
+            return readyAsyncCalls.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int runningCallsCount() {
+        lock.lock();
+        try {
+            return runningAsyncCalls.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Rejection {
+        final AsyncCall call;
+        final RejectedExecutionException cause;
+
+        Rejection(AsyncCall call, RejectedExecutionException cause) {
+            this.call = call;
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package retrofit2.client;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * VirtualThreads
+ * <p/>
+ * Access to the virtual threads of Java 21 and newer without requiring them at compile time. On
+ * older runtimes and on Android {@link #isSupported()} is false and callers fall back to platform
+ * threads.
+ */
+public final class VirtualThreads {
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+    private static final ThreadFactory FACTORY = findFactory();
+
+    static {
+        Method method = null;
+        if (FACTORY != null) {
+            try {
+                method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+        NEW_THREAD_PER_TASK_EXECUTOR = method;
+    }
+
+    /** Returns a factory of virtual threads named "Retrofit-0", "Retrofit-1"..., or null. */
+    private static ThreadFactory findFactory() {
+        try {
+            // Thread.ofVirtual().name(THREAD_PREFIX, 0).factory()
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, UrlConnectionDispatcher.THREAD_PREFIX, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            // Not present before Java 21, or a preview feature which is not enabled.
+            return null;
+        }
+    }
+
+    private VirtualThreads() {
+        throw new AssertionError("No instances.");
+    }
+
+    /** True if this runtime can start virtual threads. */
+    public static boolean isSupported() {
+        return NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Returns an executor which starts a new virtual thread for each task. Virtual threads are cheap
+     * to block, so there is no pool and no limit on the number of tasks running at once.
+     *
+     * @throws UnsupportedOperationException if {@linkplain #isSupported() not supported}.
+     */
+    public static ExecutorService newExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.");
+        }
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, FACTORY);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
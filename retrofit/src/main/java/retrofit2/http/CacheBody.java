@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.http;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Keep the converted bodies of this method's successful responses in memory, and answer later
+ * identical calls from there without sending a request or converting anything. Responses are kept
+ * for as long as their {@code Cache-Control: max-age} allows. See {@code retrofit2.BodyCache}.
+ * <p>
+ * Only allowed on {@link GET @GET} methods which are not {@link Streaming @Streaming} and do not
+ * return a raw {@code ResponseBody} or an {@code Iterator}, whose content can only be read once.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface CacheBody {
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.http;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Share one network exchange between concurrent calls of this method that make the same request,
+ * meaning the same URL and headers. The first call sends the request; calls made while it is in
+ * flight wait for its response instead of sending their own. Each caller receives its own copy of
+ * the buffered body and converts it independently. Calls made after the response arrived send a new
+ * request: nothing is cached.
+ * <p>
+ * Only allowed on {@link GET @GET} and {@link HEAD @HEAD} methods which are not {@link Streaming
+ * @Streaming} and do not return an {@code Iterator}, since sharing buffers the whole body.
+ * To coalesce every such method use {@code Retrofit.Builder.coalesceRequests}.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Coalesce {
+}
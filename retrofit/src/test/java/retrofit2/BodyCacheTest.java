@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class BodyCacheTest {
+    private final Object owner = new Object();
+    private final BodyCache cache = new BodyCache(2);
+
+    @Test
+    public void freshResponseIsServedWithTheSameBody() {
+        Object body = new Object();
+        cache.put(owner, request("/a"), response(200, body, "Cache-Control", "max-age=60"));
+
+        Response<Object> hit = cache.get(owner, request("/a"));
+        assertThat(hit.body()).isEqualTo(body);
+        assertThat(hit.header("Cache-Control")).isEqualTo("max-age=60");
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void responsesWhichMayNotBeCachedAreNotStored() {
+        cache.put(owner, request("/a"), response(200, "a"));
+        cache.put(owner, request("/b"), response(200, "b", "Cache-Control", "max-age=0"));
+        cache.put(owner, request("/c"),
+                response(200, "c", "Cache-Control", "max-age=60, no-store"));
+        cache.put(owner, request("/d"),
+                response(200, "d", "Cache-Control", "max-age=60, no-cache"));
+        cache.put(owner, request("/e"), response(404, "e", "Cache-Control", "max-age=60"));
+        assertThat(cache.size()).isEqualTo(0);
+
+        assertThat(cache.get(owner, request("/a"))).isNull();
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void ageCountsAgainstMaxAge() throws Exception {
+        cache.put(owner, request("/a"),
+                response(200, "a", "Cache-Control", "max-age=60", "Age", "60"));
+        assertThat(cache.size()).isEqualTo(0);
+
+        cache.put(owner, request("/b"),
+                response(200, "b", "Cache-Control", "max-age=2", "Age", "1"));
+        assertThat(cache.get(owner, request("/b")).body()).isEqualTo("b");
+
+        Thread.sleep(1100);
+        assertThat(cache.get(owner, request("/b"))).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void malformedAgeIsIgnored() {
+        cache.put(owner, request("/a"),
+                response(200, "a", "Cache-Control", "max-age=60", "Age", "soon"));
+        assertThat(cache.get(owner, request("/a")).body()).isEqualTo("a");
+    }
+
+    @Test
+    public void onlyIdenticalRequestsOfTheSameOwnerMatch() {
+        cache.put(owner, request("/a"), response(200, "a", "Cache-Control", "max-age=60"));
+
+        assertThat(cache.get(new Object(), request("/a"))).isNull();
+        assertThat(cache.get(owner, request("/b"))).isNull();
+        Request withHeader = new Request.Builder()
+                .url("http://example.com/a")
+                .header("Accept", "text/plain")
+                .build();
+        assertThat(cache.get(owner, withHeader)).isNull();
+        assertThat(cache.missCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void leastRecentlyUsedBodyIsEvicted() {
+        cache.put(owner, request("/a"), response(200, "a", "Cache-Control", "max-age=60"));
+        cache.put(owner, request("/b"), response(200, "b", "Cache-Control", "max-age=60"));
+        assertThat(cache.get(owner, request("/a")).body()).isEqualTo("a");
+
+        cache.put(owner, request("/c"), response(200, "c", "Cache-Control", "max-age=60"));
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(owner, request("/b"))).isNull();
+        assertThat(cache.get(owner, request("/a")).body()).isEqualTo("a");
+        assertThat(cache.get(owner, request("/c")).body()).isEqualTo("c");
+    }
+
+    @Test
+    public void evictAll() {
+        cache.put(owner, request("/a"), response(200, "a", "Cache-Control", "max-age=60"));
+        cache.evictAll();
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get(owner, request("/a"))).isNull();
+    }
+
+    @Test
+    public void maxEntriesMustBePositive() {
+        try {
+            new BodyCache(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessage("maxEntries < 1: 0");
+        }
+    }
+
+    private static Request request(String path) {
+        return new Request.Builder().url("http://example.com" + path).build();
+    }
+
+    /**
+     * A converted response with {@code body}, or an error response if {@code code} is not
+     * successful, with the given header names and values.
+     */
+    private static Response<Object> response(int code, Object body, String... headers) {
+        Response.Builder raw = new Response.Builder()
+                .request(request("/"))
+                .protocol(Protocol.HTTP_1_1)
+                .code(code);
+        for (int i = 0; i < headers.length; i += 2) {
+            raw.header(headers[i], headers[i + 1]);
+        }
+        Response rawResponse = raw.build();
+        if (!rawResponse.isSuccessful()) {
+            return Response.error(ResponseBody.create(null, ""), rawResponse);
+        }
+        return Response.success(body, rawResponse);
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class CallsTest {
+    /** Calls in the order they were enqueued. */
+    private final BlockingQueue<ManualCall> enqueued = new LinkedBlockingQueue<>();
+
+    @Test
+    public void emptyBatches() throws Exception {
+        assertThat(Calls.executeAll(Collections.<Call<String>>emptyList(), 1).isEmpty()).isTrue();
+
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+        Calls.Batch<String> batch =
+                Calls.enqueueAll(Collections.<Call<String>>emptyList(), 1, callback);
+        assertThat(batch.size()).isEqualTo(0);
+        assertThat(callback.complete.getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void atMostConcurrencyCallsAreInFlight() throws Exception {
+        List<ManualCall> calls = calls(5);
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+        Calls.enqueueAll(calls, 2, callback);
+        assertThat(takeEnqueued()).isEqualTo(calls.get(0));
+        assertThat(takeEnqueued()).isEqualTo(calls.get(1));
+        assertThat(enqueued.isEmpty()).isTrue();
+
+        calls.get(1).respond("b");
+        assertThat(takeEnqueued()).isEqualTo(calls.get(2));
+        assertThat(enqueued.isEmpty()).isTrue();
+
+        calls.get(0).respond("a");
+        calls.get(2).respond("c");
+        assertThat(takeEnqueued()).isEqualTo(calls.get(3));
+        assertThat(takeEnqueued()).isEqualTo(calls.get(4));
+        calls.get(4).respond("e");
+        assertThat(callback.complete.getCount()).isEqualTo(1);
+
+        calls.get(3).respond("d");
+        assertThat(callback.complete.getCount()).isEqualTo(0);
+        assertThat(callback.events)
+                .isEqualTo(Arrays.asList("1: b", "0: a", "2: c", "4: e", "3: d"));
+    }
+
+    @Test
+    public void executeAllReturnsResponsesInCallOrder() throws Exception {
+        List<ManualCall> calls = calls(3);
+        AsyncExecuteAll execute = new AsyncExecuteAll(calls, 3);
+        takeEnqueued();
+        takeEnqueued();
+        takeEnqueued();
+        calls.get(2).respond("c");
+        calls.get(0).respond("a");
+        calls.get(1).respond("b");
+
+        List<Response<String>> responses = execute.await();
+        assertThat(responses.size()).isEqualTo(3);
+        assertThat(responses.get(0).body()).isEqualTo("a");
+        assertThat(responses.get(1).body()).isEqualTo("b");
+        assertThat(responses.get(2).body()).isEqualTo("c");
+    }
+
+    @Test
+    public void executeAllThrowsTheFirstFailureAndCancelsTheRest() throws Exception {
+        List<ManualCall> calls = calls(4);
+        AsyncExecuteAll execute = new AsyncExecuteAll(calls, 2);
+        takeEnqueued();
+        takeEnqueued();
+
+        IOException failure = new IOException("Boom");
+        calls.get(1).fail(failure);
+        try {
+            execute.await();
+            fail();
+        } catch (IOException e) {
+            // Not the "Canceled" failure of the call which was still in flight.
+            assertThat(e).isEqualTo(failure);
+        }
+        assertThat(calls.get(0).isCanceled()).isTrue();
+        assertThat(calls.get(2).isExecuted()).isFalse();
+        assertThat(calls.get(3).isExecuted()).isFalse();
+    }
+
+    @Test
+    public void cancelingBatchCancelsCallsInFlightAndSkipsTheRest() throws Exception {
+        List<ManualCall> calls = calls(3);
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+        Calls.Batch<String> batch = Calls.enqueueAll(calls, 1, callback);
+        takeEnqueued();
+
+        batch.cancel();
+        assertThat(batch.isCanceled()).isTrue();
+        assertThat(calls.get(0).isCanceled()).isTrue();
+        assertThat(calls.get(1).isExecuted()).isFalse();
+        assertThat(callback.complete.getCount()).isEqualTo(0);
+        assertThat(callback.events).isEqualTo(Arrays.asList("0 failed: Canceled"));
+    }
+
+    @Test
+    public void callWhichCannotBeEnqueuedFailsAndTheBatchGoesOn() throws Exception {
+        List<ManualCall> calls = calls(2);
+        calls.get(0).enqueue(new Callback<String>() {
+            @Override
+            public void onResponse(Call<String> call, Response<String> response) {
+            }
+
+            @Override
+            public void onFailure(Call<String> call, Throwable t) {
+            }
+        });
+        takeEnqueued();
+
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+        Calls.enqueueAll(calls, 1, callback);
+        takeEnqueued().respond("b");
+        assertThat(callback.complete.getCount()).isEqualTo(0);
+        assertThat(callback.events)
+                .isEqualTo(Arrays.asList("0 failed: Already executed.", "1: b"));
+    }
+
+    @Test
+    public void invalidArguments() {
+        try {
+            Calls.enqueueAll(calls(1), 0, new RecordingBatchCallback());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessage("concurrency < 1: 0");
+        }
+        try {
+            Calls.enqueueAll(Arrays.<Call<String>>asList(new ManualCall(), null), 1,
+                    new RecordingBatchCallback());
+            fail();
+        } catch (NullPointerException e) {
+            assertThat(e).hasMessage("calls contains null");
+        }
+        assertThat(enqueued.isEmpty()).isTrue();
+    }
+
+    private List<ManualCall> calls(int count) {
+        List<ManualCall> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(new ManualCall());
+        }
+        return result;
+    }
+
+    private ManualCall takeEnqueued() throws InterruptedException {
+        ManualCall call = enqueued.poll(5, TimeUnit.SECONDS);
+        if (call == null) throw new AssertionError("Timed out waiting for a call to be enqueued");
+        return call;
+    }
+
+    /** A call which completes only when the test says so, and fails when canceled in flight. */
+    final class ManualCall implements Call<String> {
+        private Callback<String> callback;
+        private boolean canceled;
+        private boolean completed;
+
+        void respond(String body) {
+            Callback<String> callback;
+            synchronized (this) {
+                if (completed) return;
+                completed = true;
+                callback = this.callback;
+            }
+            callback.onResponse(this, Response.success(body));
+        }
+
+        void fail(Throwable t) {
+            Callback<String> callback;
+            synchronized (this) {
+                if (completed) return;
+                completed = true;
+                callback = this.callback;
+            }
+            callback.onFailure(this, t);
+        }
+
+        @Override
+        public Response<String> execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(Callback<String> callback) {
+            synchronized (this) {
+                if (this.callback != null) throw new IllegalStateException("Already executed.");
+                this.callback = callback;
+            }
+            enqueued.add(this);
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return callback != null;
+        }
+
+        @Override
+        public void cancel() {
+            boolean inFlight;
+            synchronized (this) {
+                canceled = true;
+                inFlight = callback != null;
+            }
+            if (inFlight) {
+                fail(new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<String> clone() {
+            return new ManualCall();
+        }
+
+        @Override
+        public Request request() {
+            return new Request.Builder().url("http://example.com/").build();
+        }
+    }
+
+    static final class RecordingBatchCallback implements Calls.BatchCallback<String> {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch complete = new CountDownLatch(1);
+
+        @Override
+        public void onResponse(int index, Call<String> call, Response<String> response) {
+            events.add(index + ": " + response.body());
+        }
+
+        @Override
+        public void onFailure(int index, Call<String> call, Throwable t) {
+            events.add(index + " failed: " + t.getMessage());
+        }
+
+        @Override
+        public void onComplete() {
+            if (complete.getCount() == 0) throw new AssertionError("Completed twice");
+            complete.countDown();
+        }
+    }
+
+    /** Runs executeAll() on another thread, so that the test can complete its calls. */
+    static final class AsyncExecuteAll {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private List<Response<String>> responses;
+        private Throwable failure;
+
+        AsyncExecuteAll(final List<ManualCall> calls, final int concurrency) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        responses = Calls.executeAll(calls, concurrency);
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        List<Response<String>> await() throws Exception {
+            if (!done.await(5, TimeUnit.SECONDS)) throw new AssertionError("Timed out");
+            if (failure instanceof Exception) throw (Exception) failure;
+            if (failure != null) throw (Error) failure;
+            return responses;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2016 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class SingleFlightTest {
+    private final FakeCallFactory delegate = new FakeCallFactory();
+    private final SingleFlight singleFlight = new SingleFlight(delegate);
+
+    @Test
+    public void identicalCallsShareOneExchange() throws Exception {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        singleFlight.newCall(request("/a")).enqueue(first);
+        singleFlight.newCall(request("/a")).enqueue(second);
+        assertThat(delegate.calls.size()).isEqualTo(1);
+        assertThat(singleFlight.exchangeCount()).isEqualTo(1);
+
+        delegate.calls.get(0).respond("Hi");
+        assertThat(first.takeBody()).isEqualTo("Hi");
+        assertThat(second.takeBody()).isEqualTo("Hi");
+        assertThat(singleFlight.exchangeCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void differentRequestsDoNotShare() {
+        singleFlight.newCall(request("/a")).enqueue(new RecordingCallback());
+        singleFlight.newCall(request("/b")).enqueue(new RecordingCallback());
+        singleFlight.newCall(new Request.Builder()
+                .url("http://example.com/a")
+                .header("Accept", "text/plain")
+                .build()).enqueue(new RecordingCallback());
+        assertThat(delegate.calls.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void callAfterCompletionStartsNewExchange() throws Exception {
+        RecordingCallback first = new RecordingCallback();
+        singleFlight.newCall(request("/a")).enqueue(first);
+        delegate.calls.get(0).respond("One");
+        assertThat(first.takeBody()).isEqualTo("One");
+
+        RecordingCallback second = new RecordingCallback();
+        singleFlight.newCall(request("/a")).enqueue(second);
+        assertThat(delegate.calls.size()).isEqualTo(2);
+        delegate.calls.get(1).respond("Two");
+        assertThat(second.takeBody()).isEqualTo("Two");
+    }
+
+    @Test
+    public void failureIsDeliveredToEveryCall() throws Exception {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        singleFlight.newCall(request("/a")).enqueue(first);
+        singleFlight.newCall(request("/a")).enqueue(second);
+
+        IOException failure = new IOException("Boom");
+        delegate.calls.get(0).fail(failure);
+        assertThat(first.takeFailure()).isEqualTo(failure);
+        assertThat(second.takeFailure()).isEqualTo(failure);
+        assertThat(singleFlight.exchangeCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancelingOneCallOnlyDetachesIt() throws Exception {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        Call call = singleFlight.newCall(request("/a"));
+        call.enqueue(first);
+        singleFlight.newCall(request("/a")).enqueue(second);
+
+        call.cancel();
+        assertThat(call.isCanceled()).isTrue();
+        assertThat(first.takeFailure()).hasMessage("Canceled");
+        assertThat(delegate.calls.get(0).isCanceled()).isFalse();
+
+        delegate.calls.get(0).respond("Hi");
+        assertThat(second.takeBody()).isEqualTo("Hi");
+        assertThat(first.results.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void cancelingEveryCallCancelsTheExchange() throws Exception {
+        Call first = singleFlight.newCall(request("/a"));
+        Call second = singleFlight.newCall(request("/a"));
+        first.enqueue(new RecordingCallback());
+        second.enqueue(new RecordingCallback());
+
+        first.cancel();
+        second.cancel();
+        assertThat(delegate.calls.get(0).isCanceled()).isTrue();
+        assertThat(singleFlight.exchangeCount()).isEqualTo(0);
+
+        // The canceled exchange is not joined again.
+        singleFlight.newCall(request("/a")).enqueue(new RecordingCallback());
+        assertThat(delegate.calls.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void canceledBeforeExecuteNeverReachesTheDelegate() throws Exception {
+        Call call = singleFlight.newCall(request("/a"));
+        call.cancel();
+        try {
+            call.execute();
+            fail();
+        } catch (IOException e) {
+            assertThat(e).hasMessage("Canceled");
+        }
+        for (FakeCall raw : delegate.calls) {
+            assertThat(raw.isCanceled()).isTrue();
+        }
+        assertThat(singleFlight.exchangeCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void executeWaitsForTheSharedResponse() throws Exception {
+        AsyncExecute execute = new AsyncExecute(singleFlight.newCall(request("/a")));
+        delegate.awaitCalls(1);
+        RecordingCallback joined = new RecordingCallback();
+        singleFlight.newCall(request("/a")).enqueue(joined);
+
+        delegate.calls.get(0).respond("Hi");
+        assertThat(execute.takeBody()).isEqualTo("Hi");
+        assertThat(joined.takeBody()).isEqualTo("Hi");
+    }
+
+    @Test
+    public void cancelingExecuteWhichStartedTheExchangeReturnsRightAway() throws Exception {
+        Call leader = singleFlight.newCall(request("/a"));
+        AsyncExecute execute = new AsyncExecute(leader);
+        delegate.awaitCalls(1);
+        RecordingCallback joined = new RecordingCallback();
+        singleFlight.newCall(request("/a")).enqueue(joined);
+
+        leader.cancel();
+        assertThat(execute.takeFailure()).hasMessage("Canceled");
+        assertThat(delegate.calls.get(0).isCanceled()).isFalse();
+
+        delegate.calls.get(0).respond("Hi");
+        assertThat(joined.takeBody()).isEqualTo("Hi");
+    }
+
+    @Test
+    public void callCanOnlyBeExecutedOnce() throws Exception {
+        Call call = singleFlight.newCall(request("/a"));
+        call.enqueue(new RecordingCallback());
+        assertThat(call.isExecuted()).isTrue();
+        try {
+            call.enqueue(new RecordingCallback());
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("Already executed.");
+        }
+        assertThat(call.clone().isExecuted()).isFalse();
+    }
+
+    private static Request request(String path) {
+        return new Request.Builder().url("http://example.com" + path).build();
+    }
+
+    static Response response(Request request, String body) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .body(ResponseBody.create(MediaType.parse("text/plain"), body))
+                .build();
+    }
+
+    /** Calls which complete only when the test says so. */
+    static final class FakeCallFactory implements Call.Factory {
+        final List<FakeCall> calls = new CopyOnWriteArrayList<>();
+
+        private int enqueued;
+
+        @Override
+        public Call newCall(Request request) {
+            FakeCall call = new FakeCall(this, request);
+            calls.add(call);
+            return call;
+        }
+
+        synchronized void enqueued() {
+            enqueued++;
+            notifyAll();
+        }
+
+        /** Wait until {@code count} calls have been enqueued. */
+        synchronized void awaitCalls(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (enqueued < count) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) throw new AssertionError("Timed out waiting for calls");
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+    }
+
+    static final class FakeCall implements Call {
+        private final FakeCallFactory factory;
+        private final Request request;
+        private volatile Callback callback;
+        private volatile boolean canceled;
+
+        FakeCall(FakeCallFactory factory, Request request) {
+            this.factory = factory;
+            this.request = request;
+        }
+
+        @SuppressWarnings("unchecked")
+        void respond(String body) {
+            callback.onResponse(this, response(request, body));
+        }
+
+        @SuppressWarnings("unchecked")
+        void fail(Throwable t) {
+            callback.onFailure(this, t);
+        }
+
+        @Override
+        public Response execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(Callback callback) {
+            this.callback = callback;
+            factory.enqueued();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return callback != null;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call clone() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+    }
+
+    /** Records the results delivered to a callback, or by execute() on another thread. */
+    static class RecordingCallback implements Callback {
+        final BlockingQueue<Object> results = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            results.add(response);
+        }
+
+        @Override
+        public void onFailure(Call call, Throwable t) {
+            results.add(t);
+        }
+
+        String takeBody() throws Exception {
+            Object result = take();
+            if (!(result instanceof Response)) throw new AssertionError("Failed: " + result);
+            return ((Response) result).originalBody().string();
+        }
+
+        Throwable takeFailure() throws Exception {
+            Object result = take();
+            if (!(result instanceof Throwable)) throw new AssertionError("Succeeded: " + result);
+            return (Throwable) result;
+        }
+
+        private Object take() throws InterruptedException {
+            Object result = results.poll(5, TimeUnit.SECONDS);
+            if (result == null) throw new AssertionError("Timed out waiting for a result");
+            return result;
+        }
+    }
+
+    static final class AsyncExecute extends RecordingCallback {
+        AsyncExecute(final Call call) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        onResponse(call, call.execute());
+                    } catch (Throwable t) {
+                        onFailure(call, t);
+                    }
+                }
+            }.start();
+        }
+    }
+}